@@ -0,0 +1,133 @@
+package ch.usi.si.seart.cloc;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Measures the cost of preparing commands, without executing them.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BuilderBenchmark {
+
+    private static final Path ROOT = Paths.get("target", "benchmarks", "scripts");
+
+    @State(Scope.Benchmark)
+    public static class Warm {
+
+        private Path target;
+
+        @Setup
+        public void setUp() throws IOException {
+            target = SourceTrees.get(10);
+            CLOC.getExecutable();
+        }
+    }
+
+    /*
+     * The script is packaged into a JAR, just as it is when the library is used as a dependency,
+     * so that extraction reads it through the same kind of URL.
+     */
+    @State(Scope.Benchmark)
+    public static class Packaged {
+
+        private URL url;
+        private Path extracted;
+
+        @Setup
+        public void setUp() throws IOException, NoSuchAlgorithmException {
+            Files.createDirectories(ROOT);
+            Path jar = ROOT.resolve("cloc.jar").toAbsolutePath();
+            try (
+                InputStream input = CLOC.class.getClassLoader().getResourceAsStream("cloc.pl");
+                JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar))
+            ) {
+                if (input == null) throw new IOException("Script not found: cloc.pl");
+                output.putNextEntry(new JarEntry("cloc.pl"));
+                byte[] buffer = new byte[1 << 16];
+                for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+                    output.write(buffer, 0, read);
+                }
+            }
+            url = new URL("jar:" + jar.toUri() + "!/cloc.pl");
+            extracted = Files.createTempDirectory(ROOT, "warm");
+            extract(extracted);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            FileUtils.deleteDirectory(extracted.toFile());
+        }
+
+        private File extract(Path root) throws IOException, NoSuchAlgorithmException {
+            return Scripts.extract(root, url, "cloc.pl", CLOC.getVersion(), CLOC.getMD5());
+        }
+    }
+
+    /*
+     * Every invocation extracts to a fresh directory, so that the script is copied out of the JAR,
+     * verified and stamped under the file lock each time.
+     */
+    @State(Scope.Thread)
+    public static class Fresh {
+
+        private Path root;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws IOException {
+            Files.createDirectories(ROOT);
+            root = Files.createTempDirectory(ROOT, "cold");
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            FileUtils.deleteDirectory(root.toFile());
+        }
+    }
+
+    @Benchmark
+    public CLOC target(Warm state) {
+        return CLOC.command().target(state.target);
+    }
+
+    @Benchmark
+    public File executable(Warm state) {
+        return CLOC.getExecutable();
+    }
+
+    @Benchmark
+    public File extractCold(Packaged packaged, Fresh fresh) throws IOException, NoSuchAlgorithmException {
+        return packaged.extract(fresh.root);
+    }
+
+    @Benchmark
+    public File extractWarm(Packaged packaged) throws IOException, NoSuchAlgorithmException {
+        return packaged.extract(packaged.extracted);
+    }
+}
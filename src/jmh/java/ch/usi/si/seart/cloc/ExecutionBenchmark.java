@@ -0,0 +1,54 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures end-to-end command executions on synthetic source trees of increasing size,
+ * using each of the available execution modes.
+ */
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExecutionBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"process", "engine"})
+    public String mode;
+
+    private CLOC command;
+
+    @Setup
+    public void setUp() throws IOException {
+        CLOC.Builder builder = CLOC.command().javaEngine("engine".equals(mode));
+        command = builder.target(SourceTrees.get(size));
+    }
+
+    @Benchmark
+    public ObjectNode linesByLanguage() throws CLOCException {
+        return command.linesByLanguage();
+    }
+
+    @Benchmark
+    public ObjectNode linesByFile() throws CLOCException {
+        return command.linesByFile();
+    }
+}
@@ -0,0 +1,81 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of the command output on its own, using synthetic output of increasing size.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParserBenchmark {
+
+    private static final String[] LANGUAGES = {"Java", "Python", "C", "JavaScript"};
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private final JsonMapper mapper = new JsonMapper();
+
+    private byte[] byFile;
+    private byte[] byLanguage;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(size);
+        FileCounts counts = new FileCounts();
+        for (int i = 0; i < size; i++) {
+            String path = String.format("/tmp/tree/%03d/File%07d", i / 1000, i);
+            int language = Languages.id(LANGUAGES[random.nextInt(LANGUAGES.length)]);
+            counts.add(path, language, random.nextInt(20), random.nextInt(50), random.nextInt(200));
+        }
+        byFile = mapper.writeValueAsBytes(OutputWriters.linesByFile(null, counts));
+        byLanguage = mapper.writeValueAsBytes(OutputWriters.linesByLanguage(null, counts.getLanguageCounts()));
+    }
+
+    @Benchmark
+    public JsonNode treeByFile() throws IOException {
+        return mapper.readTree(byFile);
+    }
+
+    @Benchmark
+    public FileCounts streamByFile() throws IOException {
+        try (JsonParser parser = mapper.createParser(byFile)) {
+            return OutputParsers.fileCounts().handle(parser);
+        }
+    }
+
+    @Benchmark
+    public Report reportByFile() throws IOException {
+        try (JsonParser parser = mapper.createParser(byFile)) {
+            return OutputParsers.report().handle(parser);
+        }
+    }
+
+    @Benchmark
+    public LanguageCounts streamByLanguage() throws IOException {
+        try (JsonParser parser = mapper.createParser(byLanguage)) {
+            return OutputParsers.languageCounts().handle(parser);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ch.usi.si.seart.cloc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates reproducible synthetic source trees for benchmarking.
+ * Trees are generated once per size and reused by subsequent runs.
+ */
+final class SourceTrees {
+
+    private static final Path ROOT = Paths.get("target", "benchmarks", "trees");
+    private static final String MARKER = ".complete";
+    private static final int FILES_PER_DIRECTORY = 100;
+
+    private static final String[] EXTENSIONS = {"java", "py", "c", "js"};
+    private static final String[] LINE_COMMENTS = {"//", "#", "//", "//"};
+
+    private SourceTrees() {
+    }
+
+    /**
+     * Obtain a synthetic source tree, generating it first if needed.
+     * The same size always yields the same tree.
+     *
+     * @param files the number of files in the tree.
+     * @return the path to the root of the tree.
+     * @throws IOException if the tree could not be generated.
+     */
+    static synchronized Path get(int files) throws IOException {
+        Path root = ROOT.resolve(String.valueOf(files)).toAbsolutePath();
+        if (Files.exists(root.resolve(MARKER))) return root;
+        Random random = new Random(files);
+        for (int i = 0; i < files; i++) {
+            int directory = i / FILES_PER_DIRECTORY;
+            Path parent = root.resolve(String.format("%03d", directory / 1000))
+                    .resolve(String.format("%03d", directory % 1000));
+            Files.createDirectories(parent);
+            int language = random.nextInt(EXTENSIONS.length);
+            Path file = parent.resolve(String.format("File%07d.%s", i, EXTENSIONS[language]));
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                write(writer, random, i, LINE_COMMENTS[language]);
+            }
+        }
+        Files.createFile(root.resolve(MARKER));
+        return root;
+    }
+
+    /*
+     * Each file starts with a unique line, so that no two files are considered duplicates.
+     */
+    private static void write(Writer writer, Random random, int index, String comment) throws IOException {
+        writer.write(comment + " file " + index + "\n");
+        int lines = 10 + random.nextInt(190);
+        for (int line = 0; line < lines; line++) {
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                writer.write("\n");
+            } else if (kind == 1) {
+                writer.write("    " + comment + " comment " + line + "\n");
+            } else {
+                writer.write("    value_" + line + " = " + random.nextInt(1000) + ";\n");
+            }
+        }
+    }
+}
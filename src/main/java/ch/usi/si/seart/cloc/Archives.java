@@ -0,0 +1,227 @@
+package ch.usi.si.seart.cloc;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Extracts the regular files of ZIP and TAR archives (optionally compressed with GZIP) into a directory.
+ * The format is determined from the contents of the archive, rather than its name.
+ * Entries that would be extracted outside the directory, links and special files are skipped.
+ */
+final class Archives {
+
+    private static final int BLOCK_SIZE = 512;
+
+    private Archives() {
+    }
+
+    /**
+     * @param archive the archive contents.
+     * @param directory the directory into which the files are extracted.
+     * @throws IOException if the archive could not be read, or the files could not be written.
+     * @throws IllegalArgumentException if the archive format is not supported.
+     */
+    static void extract(InputStream archive, Path directory) throws IOException {
+        BufferedInputStream stream = new BufferedInputStream(archive, BLOCK_SIZE * 2);
+        byte[] head = peek(stream, BLOCK_SIZE);
+        if (startsWith(head, 0x1F, 0x8B)) {
+            BufferedInputStream decompressed = new BufferedInputStream(new GZIPInputStream(stream), BLOCK_SIZE * 2);
+            if (isTar(peek(decompressed, BLOCK_SIZE))) untar(decompressed, directory);
+            else throw new IllegalArgumentException("Unsupported archive format!");
+        } else if (startsWith(head, 'P', 'K', 3, 4) || startsWith(head, 'P', 'K', 5, 6)) {
+            unzip(stream, directory);
+        } else if (isTar(head)) {
+            untar(stream, directory);
+        } else {
+            throw new IllegalArgumentException("Unsupported archive format!");
+        }
+    }
+
+    /**
+     * @param directory the directory into which files are extracted.
+     * @param name the relative path of a file.
+     * @return the path to which the file is extracted, or {@code null} if it would lie outside the directory.
+     */
+    static Path resolve(Path directory, String name) {
+        String normalized = name.replace('\\', '/');
+        if (normalized.startsWith("/") || normalized.matches("^[A-Za-z]:.*")) return null;
+        Path file = directory.resolve(normalized).normalize();
+        return file.startsWith(directory) && !file.equals(directory) ? file : null;
+    }
+
+    private static void unzip(InputStream stream, Path directory) throws IOException {
+        ZipInputStream zip = new ZipInputStream(stream);
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            if (!entry.isDirectory()) write(zip, -1, directory, entry.getName());
+        }
+    }
+
+    private static void untar(InputStream stream, Path directory) throws IOException {
+        byte[] header = new byte[BLOCK_SIZE];
+        String longName = null;
+        while (read(stream, header) && !isZero(header)) {
+            long size = number(header, 124, 12);
+            byte type = header[156];
+            if (type == 'L') {
+                longName = terminate(new String(readAll(stream, size), StandardCharsets.UTF_8));
+            } else if (type == 'x') {
+                String path = paxPath(readAll(stream, size));
+                if (path != null) longName = path;
+            } else {
+                String name = longName != null ? longName : name(header);
+                longName = null;
+                boolean regular = type == '0' || type == 0 || type == '7';
+                if (regular && !name.endsWith("/")) write(stream, size, directory, name);
+                else skip(stream, size);
+            }
+            skip(stream, (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE);
+        }
+    }
+
+    private static void write(InputStream stream, long size, Path directory, String name) throws IOException {
+        Path file = resolve(directory, name);
+        if (file == null) {
+            skip(stream, size);
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        byte[] buffer = new byte[8192];
+        long remaining = size < 0 ? Long.MAX_VALUE : size;
+        try (OutputStream output = Files.newOutputStream(file)) {
+            while (remaining > 0) {
+                int read = stream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) break;
+                output.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+        if (size >= 0 && remaining > 0) throw new EOFException("Unexpected end of archive!");
+    }
+
+    private static String name(byte[] header) {
+        String name = string(header, 0, 100);
+        boolean ustar = startsWith(slice(header, 257, 5), 'u', 's', 't', 'a', 'r');
+        String prefix = ustar ? string(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    /*
+     * Extended headers consist of records in the form of "<length> <key>=<value>\n".
+     */
+    private static String paxPath(byte[] bytes) {
+        String path = null;
+        int offset = 0;
+        while (offset < bytes.length) {
+            int space = offset;
+            while (space < bytes.length && bytes[space] != ' ') space++;
+            if (space == bytes.length) break;
+            int length;
+            try {
+                length = Integer.parseInt(new String(bytes, offset, space - offset, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException ex) {
+                break;
+            }
+            if (length <= 0 || offset + length > bytes.length) break;
+            String record = new String(bytes, space + 1, offset + length - space - 2, StandardCharsets.UTF_8);
+            if (record.startsWith("path=")) path = record.substring(5);
+            offset += length;
+        }
+        return path;
+    }
+
+    private static long number(byte[] header, int offset, int length) {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7F;
+            for (int i = offset + 1; i < offset + length; i++) value = (value << 8) | (header[i] & 0xFF);
+            return value;
+        }
+        String digits = string(header, offset, length).trim();
+        return digits.isEmpty() ? 0 : Long.parseLong(digits, 8);
+    }
+
+    private static String string(byte[] bytes, int offset, int length) {
+        return terminate(new String(bytes, offset, length, StandardCharsets.UTF_8));
+    }
+
+    private static String terminate(String value) {
+        int end = value.indexOf('\0');
+        return end >= 0 ? value.substring(0, end) : value;
+    }
+
+    private static boolean isTar(byte[] head) {
+        return head.length == BLOCK_SIZE && startsWith(slice(head, 257, 5), 'u', 's', 't', 'a', 'r');
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) if (b != 0) return false;
+        return true;
+    }
+
+    private static boolean startsWith(byte[] bytes, int... prefix) {
+        if (bytes.length < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if ((bytes[i] & 0xFF) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private static byte[] slice(byte[] bytes, int offset, int length) {
+        byte[] result = new byte[length];
+        System.arraycopy(bytes, offset, result, 0, length);
+        return result;
+    }
+
+    private static byte[] peek(BufferedInputStream stream, int length) throws IOException {
+        stream.mark(length);
+        byte[] bytes = new byte[length];
+        int total = 0;
+        while (total < length) {
+            int read = stream.read(bytes, total, length - total);
+            if (read < 0) break;
+            total += read;
+        }
+        stream.reset();
+        return total == length ? bytes : slice(bytes, 0, total);
+    }
+
+    private static boolean read(InputStream stream, byte[] block) throws IOException {
+        int total = 0;
+        while (total < block.length) {
+            int read = stream.read(block, total, block.length - total);
+            if (read < 0) {
+                if (total == 0) return false;
+                throw new EOFException("Unexpected end of archive!");
+            }
+            total += read;
+        }
+        return true;
+    }
+
+    private static byte[] readAll(InputStream stream, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) throw new IOException("Archive header is too large!");
+        byte[] bytes = new byte[(int) size];
+        if (size > 0 && !read(stream, bytes)) throw new EOFException("Unexpected end of archive!");
+        return bytes;
+    }
+
+    private static void skip(InputStream stream, long size) throws IOException {
+        long remaining = size;
+        while (remaining > 0) {
+            long skipped = stream.skip(remaining);
+            if (skipped <= 0) {
+                if (stream.read() < 0) throw new EOFException("Unexpected end of archive!");
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A command targeting many paths at once.
+ * <p>
+ * Targets are handed to {@code cloc} through a list file, in groups of at most the configured batch size,
+ * so that the cost of starting the command is paid once per group instead of once per target.
+ * The per-file results are then split back by target, and all other result shapes are derived from them.
+ * Each target is reported exactly as if it had been counted by a separate command.
+ * In particular, the file uniqueness check (if enabled) is always performed within the JVM,
+ * and applied within each target, not across targets.
+ * If any of the options handled within the JVM are set, such as a cache, the Java engine, shards or filters,
+ * the files of each group are collected and counted in the same way as those of a single command.
+ *
+ * @author Ozren Dabić
+ */
+public final class Batch {
+
+    private final CLOC.Builder builder;
+    private final List<Path> targets;
+    private final int size;
+
+    Batch(CLOC.Builder builder, List<Path> targets, int size) {
+        this.builder = builder;
+        this.targets = targets;
+        this.size = size;
+    }
+
+    /**
+     * Count the physical lines of source code, reporting results by target.
+     *
+     * @return the report of each target, in the order in which the targets were specified.
+     * @throws CLOCException if an error occurs while executing the command.
+     */
+    public Map<Path, Report> report() throws CLOCException {
+        Map<Path, Report> results = new LinkedHashMap<>();
+        for (int start = 0; start < targets.size(); start += size) {
+            List<Path> group = targets.subList(start, Math.min(start + size, targets.size()));
+            results.putAll(report(group));
+        }
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Count the physical lines of source code, reporting results by language for each target.
+     *
+     * @return A JSON object representation of the output for each target.
+     * @throws CLOCException if an error occurs while executing the command.
+     * @see CLOC#linesByLanguage()
+     */
+    public Map<Path, ObjectNode> linesByLanguage() throws CLOCException {
+        return map(Report::linesByLanguage);
+    }
+
+    /**
+     * Count the physical lines of source code, reporting results by file for each target.
+     *
+     * @return A JSON object representation of the output for each target.
+     * @throws CLOCException if an error occurs while executing the command.
+     * @see CLOC#linesByFile()
+     */
+    public Map<Path, ObjectNode> linesByFile() throws CLOCException {
+        return map(Report::linesByFile);
+    }
+
+    /**
+     * Count the number of files, reporting results by language for each target.
+     *
+     * @return A JSON object representation of the output for each target.
+     * @throws CLOCException if an error occurs while executing the command.
+     * @see CLOC#countFiles()
+     */
+    public Map<Path, ObjectNode> countFiles() throws CLOCException {
+        return map(Report::countFiles);
+    }
+
+    private Map<Path, ObjectNode> map(Function<Report, ObjectNode> mapper) throws CLOCException {
+        Map<Path, ObjectNode> results = new LinkedHashMap<>();
+        report().forEach((target, report) -> results.put(target, mapper.apply(report)));
+        return Collections.unmodifiableMap(results);
+    }
+
+    private Map<Path, Report> report(List<Path> group) throws CLOCException {
+        if (!builder.isCollected()) return split(group, builder.count(group));
+        Set<Path> files = new LinkedHashSet<>();
+        for (Path target : group) files.addAll(builder.walk(target));
+        return split(group, builder.collect(new ArrayList<>(files)));
+    }
+
+    private Map<Path, Report> split(List<Path> group, FileCounts counts) {
+        Map<Path, Report> results = new LinkedHashMap<>();
+        for (Path target : group) {
+            String root = ListFiles.normalize(target);
+            Set<String> seen = new HashSet<>();
+            FileCounts files = counts.filter(path -> ListFiles.contains(root, path) && seen.add(path));
+            Map<String, String> duplicates = Collections.emptyMap();
+            if (builder.isUniquenessChecked()) {
+                List<String> paths = new ArrayList<>(files.size());
+                files.forEach(file -> paths.add(file.getPath()));
+                duplicates = Duplicates.find(paths);
+                Set<String> excluded = duplicates.keySet();
+                if (!excluded.isEmpty()) files = files.filter(path -> !excluded.contains(path));
+            }
+            results.put(target, new Report(null, files, duplicates));
+        }
+        return results;
+    }
+}
@@ -1,32 +1,47 @@
 package ch.usi.si.seart.cloc;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.apache.commons.lang3.SystemUtils;
 import org.codehaus.plexus.util.FileUtils;
-import org.codehaus.plexus.util.cli.CommandLineException;
-import org.codehaus.plexus.util.cli.CommandLineUtils;
 import org.codehaus.plexus.util.cli.Commandline;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.net.URL;
 import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -39,13 +54,41 @@ public final class CLOC {
 
     private static final JsonMapper DEFAULT_MAPPER = new JsonMapper();
     private static volatile JsonMapper OUTPUT_MAPPER = DEFAULT_MAPPER;
+    private static volatile ExecutionListener LISTENER = ExecutionListener.NOOP;
+    private static final ThreadLocal<Long> QUEUE_TIME = new ThreadLocal<>();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /*
+     * Approximate number of files counted by each unit of work in incremental executions.
+     */
+    private static final int UNIT_SIZE = 1000;
+
+    private static final OutputHandler<ObjectNode> TREE = parser -> {
+        JsonNode json = OUTPUT_MAPPER.readTree(parser);
+        if (json == null || json.isMissingNode()) return OUTPUT_MAPPER.createObjectNode();
+        if (json.isObject()) return (ObjectNode) json;
+        throw MismatchedInputException.from(parser, ObjectNode.class, "Expected a JSON object!");
+    };
 
     private final CommandLine commandLine;
     private final int timeout;
+    private final WorkerPool workers;
+    private final Scheduler scheduler;
+    private final Executor executor;
+
+    private final Path target;
+    private final Collection<Path> inputs;
+    private final Builder builder;
 
-    private CLOC(CommandLine commandLine, int timeout) {
+    private CLOC(CommandLine commandLine, Builder builder, Path target, Collection<Path> inputs) {
         this.commandLine = commandLine;
-        this.timeout = timeout;
+        this.timeout = builder.timeout;
+        this.workers = builder.workers;
+        this.scheduler = builder.scheduler;
+        this.executor = builder.executor != null ? builder.executor : Threads.defaultExecutor();
+        this.target = target;
+        this.inputs = inputs;
+        this.builder = builder;
     }
 
     private static volatile Properties PROPERTIES;
@@ -65,45 +108,54 @@ public final class CLOC {
     }
 
     private static volatile File EXECUTABLE;
-    private static File getExecutable() {
+    static File getExecutable() {
         if (EXECUTABLE == null) {
             synchronized (CLOC.class) {
                 if (EXECUTABLE == null) {
-                    URL url = CLOC.class.getClassLoader().getResource("cloc.pl");
-                    String protocol = Objects.requireNonNull(url).getProtocol();
-                    switch (protocol) {
-                        case "file":
-                            String path = url.getPath();
-                            EXECUTABLE = new File(path);
-                            break;
-                        case "jar":
-                            try {
-                                File script = new File(SystemUtils.USER_HOME, "cloc.pl");
-                                if (getMD5() != null && script.exists() && MD5.hash(script).equals(getMD5())) {
-                                    EXECUTABLE = script;
-                                    break;
-                                }
-                                FileUtils.copyURLToFile(url, script);
-                                boolean success = script.setExecutable(true);
-                                if (success) {
-                                    EXECUTABLE = script;
-                                    break;
-                                }
-                                throw new IOException("Unable change execute permissions: " + script);
-                            } catch (IOException ex) {
-                                throw new UncheckedIOException(ex);
-                            } catch (NoSuchAlgorithmException ex) {
-                                throw new IllegalStateException(ex);
-                            }
-                        default:
-                            throw new UnsupportedOperationException("Unsupported protocol: " + protocol);
-                    }
+                    EXECUTABLE = getScript("cloc.pl", getMD5());
                 }
             }
         }
         return EXECUTABLE;
     }
 
+    private static volatile File WORKER;
+    static File getWorker() {
+        if (WORKER == null) {
+            synchronized (CLOC.class) {
+                if (WORKER == null) {
+                    WORKER = getScript("cloc-worker.pl", null);
+                }
+            }
+        }
+        return WORKER;
+    }
+
+    private static File getScript(String name, @Nullable String md5) {
+        URL url = CLOC.class.getClassLoader().getResource(name);
+        String protocol = Objects.requireNonNull(url).getProtocol();
+        switch (protocol) {
+            case "file":
+                String path = url.getPath();
+                return new File(path);
+            case "jar":
+                try {
+                    if (md5 == null) {
+                        try (InputStream stream = url.openStream()) {
+                            md5 = MD5.hash(stream);
+                        }
+                    }
+                    return Scripts.extract(Scripts.root(), url, name, getVersion(), md5);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                } catch (NoSuchAlgorithmException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            default:
+                throw new UnsupportedOperationException("Unsupported protocol: " + protocol);
+        }
+    }
+
     /**
      * @return the {@code cloc} repository link, or {@code null} if the details could not be loaded.
      */
@@ -137,6 +189,15 @@ public final class CLOC {
         OUTPUT_MAPPER = mapper == null ? DEFAULT_MAPPER : mapper;
     }
 
+    /**
+     * Set the {@link ExecutionListener} notified after each command execution.
+     *
+     * @param listener the listener to notify, or {@code null} to stop notifying listeners.
+     */
+    public static void setExecutionListener(@Nullable ExecutionListener listener) {
+        LISTENER = listener == null ? ExecutionListener.NOOP : listener;
+    }
+
     /**
      * Obtain a new {@link Builder Builder} for constructing a command.
      *
@@ -156,6 +217,30 @@ public final class CLOC {
 
         private int timeout = 0;
 
+        private WorkerPool workers = null;
+
+        private Scheduler scheduler = null;
+
+        private Executor executor = null;
+
+        private int batchSize = 100;
+
+        private ResultCache cache = null;
+
+        private boolean javaEngine = false;
+
+        private int shards = 1;
+
+        private final Set<String> excludedDirectories = new LinkedHashSet<>();
+
+        private final Set<String> includedExtensions = new LinkedHashSet<>();
+
+        private final Set<String> excludedExtensions = new LinkedHashSet<>();
+
+        private boolean gitignore = false;
+
+        private boolean javaUniqueness = false;
+
         private final Set<String> flags = Stream.of("json", "quiet")
                 .collect(Collectors.toCollection(LinkedHashSet::new));
 
@@ -205,6 +290,45 @@ public final class CLOC {
             return this;
         }
 
+        /**
+         * Controls whether files of the most common languages are counted within the JVM,
+         * rather than by {@code cloc}. Supported languages include C, C++, C#, Go, Java, JavaScript, Kotlin, Python,
+         * Scala and TypeScript. All other files, as well as those that can not be counted with certainty,
+         * are still handed to {@code cloc}. Default is false.
+         * <p>
+         * Files are counted in parallel, following the same rules as {@code cloc},
+         * so the results are identical to those of regular executions,
+         * with the exception of execution statistics reported in the output header.
+         *
+         * @param value whether to count files within the JVM whenever possible.
+         * @return this builder instance.
+         */
+        @Contract(value = "_ -> this")
+        public Builder javaEngine(boolean value) {
+            javaEngine = value;
+            return this;
+        }
+
+        /**
+         * Split the target files into the specified number of shards, each counted concurrently by a separate process.
+         * Files are collected in Java and distributed so that all shards have roughly the same total size,
+         * after which the results are merged back into a single output. Default is 1.
+         * <p>
+         * Unlike {@link #cores(int)}, sharding does not require any additional Perl modules,
+         * and parallelizes the traversal of the target as well.
+         * Note that the {@linkplain #timeout(int) timeout} applies to each shard separately.
+         *
+         * @param value the number of shards.
+         * @return this builder instance.
+         * @throws IllegalArgumentException if the number of shards is less than 1.
+         */
+        @Contract(value = "_ -> this")
+        public Builder shards(int value) {
+            if (value < 1) throw new IllegalArgumentException("Number of shards must be greater than 0!");
+            shards = value;
+            return this;
+        }
+
         /**
          * Follow symbolic links to directories. Symbolic links to files are always followed. Only applies to Unix-like
          * systems.
@@ -248,6 +372,134 @@ public final class CLOC {
             return this;
         }
 
+        /**
+         * Exclude directories with the specified names, wherever they are located within the target.
+         * Version control directories such as {@code .git} are always excluded.
+         * <p>
+         * Files are collected in Java and excluded directories are never descended into,
+         * which is considerably faster than leaving their traversal to {@code cloc}.
+         *
+         * @param names the directory names, replacing any previously specified ones.
+         * @return this builder instance.
+         * @throws NullPointerException if any of the names is {@code null}.
+         * @throws IllegalArgumentException if any of the names is empty or contains a path separator.
+         */
+        @Contract(value = "_ -> this")
+        public Builder excludeDirs(@NotNull String... names) {
+            Set<String> values = new LinkedHashSet<>();
+            for (String name : names) {
+                Objects.requireNonNull(name, "Directory name must not be null!");
+                if (name.isEmpty() || name.contains("/") || name.contains(File.separator))
+                    throw new IllegalArgumentException("Invalid directory name: " + name);
+                values.add(name);
+            }
+            excludedDirectories.clear();
+            excludedDirectories.addAll(values);
+            return this;
+        }
+
+        /**
+         * Only count files with the specified extensions. Extensions are matched case-insensitively.
+         * Files are collected in Java, with all other files pruned before they are handed to {@code cloc}.
+         *
+         * @param extensions the file extensions without the leading dot, replacing any previously specified ones,
+         * or none to count files regardless of their extension.
+         * @return this builder instance.
+         * @throws NullPointerException if any of the extensions is {@code null}.
+         * @throws IllegalArgumentException if any of the extensions is empty.
+         */
+        @Contract(value = "_ -> this")
+        public Builder includeExtensions(@NotNull String... extensions) {
+            setExtensions(includedExtensions, extensions);
+            return this;
+        }
+
+        /**
+         * Do not count files with the specified extensions. Extensions are matched case-insensitively.
+         * Files are collected in Java, with excluded files pruned before they are handed to {@code cloc}.
+         *
+         * @param extensions the file extensions without the leading dot, replacing any previously specified ones.
+         * @return this builder instance.
+         * @throws NullPointerException if any of the extensions is {@code null}.
+         * @throws IllegalArgumentException if any of the extensions is empty.
+         */
+        @Contract(value = "_ -> this")
+        public Builder excludeExtensions(@NotNull String... extensions) {
+            setExtensions(excludedExtensions, extensions);
+            return this;
+        }
+
+        private static void setExtensions(Set<String> target, String... extensions) {
+            Set<String> values = new LinkedHashSet<>();
+            for (String extension : extensions) {
+                Objects.requireNonNull(extension, "Extension must not be null!");
+                if (extension.isEmpty()) throw new IllegalArgumentException("Extension must not be empty!");
+                values.add(extension.toLowerCase(Locale.ROOT));
+            }
+            target.clear();
+            target.addAll(values);
+        }
+
+        /**
+         * Only count files of the specified languages, as named in the {@code cloc} output.
+         *
+         * @param languages the language names, replacing any previously specified ones,
+         * or none to count files regardless of their language.
+         * @return this builder instance.
+         * @throws NullPointerException if any of the languages is {@code null}.
+         * @throws IllegalArgumentException if any of the languages is empty or contains a comma.
+         */
+        @Contract(value = "_ -> this")
+        public Builder includeLanguages(@NotNull String... languages) {
+            setLanguages("include-lang", languages);
+            return this;
+        }
+
+        /**
+         * Do not count files of the specified languages, as named in the {@code cloc} output.
+         *
+         * @param languages the language names, replacing any previously specified ones.
+         * @return this builder instance.
+         * @throws NullPointerException if any of the languages is {@code null}.
+         * @throws IllegalArgumentException if any of the languages is empty or contains a comma.
+         */
+        @Contract(value = "_ -> this")
+        public Builder excludeLanguages(@NotNull String... languages) {
+            setLanguages("exclude-lang", languages);
+            return this;
+        }
+
+        private void setLanguages(String parameter, String... languages) {
+            Set<String> values = new LinkedHashSet<>();
+            for (String language : languages) {
+                Objects.requireNonNull(language, "Language must not be null!");
+                if (language.isEmpty() || language.contains(","))
+                    throw new IllegalArgumentException("Invalid language: " + language);
+                values.add(language);
+            }
+            if (values.isEmpty()) parameters.remove(parameter);
+            else parameters.put(parameter, String.join(",", values));
+        }
+
+        /**
+         * Do not count files excluded by {@code .gitignore} rules, as Git would.
+         * Rules are read from the {@code .gitignore} files within the target and its parent directories,
+         * up to the root of the enclosing repository, as well as from its {@code .git/info/exclude} file.
+         * Default is false.
+         * <p>
+         * Files are collected in Java, with ignored files and directories pruned before they are handed to
+         * {@code cloc}. Unlike Git, the rules apply to tracked files as well.
+         * The rules are not supported by {@linkplain #history(Path) histories}.
+         *
+         * @param value whether to respect {@code .gitignore} rules.
+         * @return this builder instance.
+         */
+        @Contract(value = "_ -> this")
+        public Builder respectGitignore(boolean value) {
+            gitignore = value;
+            return this;
+        }
+
         /**
          * Process binary files in addition to text files.
          * <p>
@@ -279,6 +531,132 @@ public final class CLOC {
             return this;
         }
 
+        /**
+         * Perform the file uniqueness check within the JVM, instead of leaving it to {@code cloc}. Default is false.
+         * <p>
+         * Rather than hashing every file one by one, only files sharing their size with another file are read.
+         * These are hashed in parallel, and files with identical hashes are compared byte by byte,
+         * so the same files are excluded as with the regular check, at a fraction of the cost.
+         * As with the regular check, only files recognized as source code take part,
+         * so the check is performed once the files have been counted.
+         * The excluded files can be obtained from the {@linkplain Report#getDuplicates() report}.
+         * Has no effect if the {@linkplain #skipUniqueness(boolean) uniqueness check is skipped}.
+         *
+         * @param value whether to check file uniqueness within the JVM.
+         * @return this builder instance.
+         */
+        @Contract(value = "_ -> this")
+        public Builder javaUniqueness(boolean value) {
+            javaUniqueness = value;
+            return this;
+        }
+
+        /**
+         * Execute the command through a pool of long-lived workers, instead of starting a new process each time.
+         * Results are identical to those of regular executions,
+         * but the cost of starting the interpreter and compiling the script is only paid once per worker.
+         *
+         * @param value the worker pool to use, or {@code null} to start a new process for each execution.
+         * @return this builder instance.
+         */
+        @Contract(value = "_ -> this")
+        public Builder workers(@Nullable WorkerPool value) {
+            workers = value;
+            return this;
+        }
+
+        /**
+         * Admit each command execution through a scheduler shared with other commands,
+         * which limits the number of processes running at the same time, along with their estimated memory usage.
+         *
+         * @param value the scheduler to use, or {@code null} to start executions right away.
+         * @return this builder instance.
+         */
+        @Contract(value = "_ -> this")
+        public Builder scheduler(@Nullable Scheduler value) {
+            scheduler = value;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of targets counted by a single command execution,
+         * when creating a {@linkplain #targets(Collection) batch}. Default is 100.
+         * <p>
+         * Larger batches amortise the cost of starting the command over more targets,
+         * at the expense of a higher memory usage and a longer running time per execution.
+         * Note that the {@linkplain #timeout(int) timeout} applies to each execution separately.
+         *
+         * @param value the maximum number of targets per execution.
+         * @return this builder instance.
+         * @throws IllegalArgumentException if the batch size is less than 1.
+         */
+        @Contract(value = "_ -> this")
+        public Builder batchSize(int value) {
+            if (value < 1) throw new IllegalArgumentException("Batch size must be greater than 0!");
+            batchSize = value;
+            return this;
+        }
+
+        /**
+         * Serve per-file counts from the specified cache whenever possible.
+         * Only the files that are missing from the cache, or whose contents have changed, are handed to the command.
+         * <p>
+         * Cached executions discover the target files in Java, and derive all result shapes from the per-file counts.
+         * The results are identical to those of regular executions,
+         * with the exception of execution statistics reported in the output header.
+         *
+         * @param value the cache to use, or {@code null} to always count all files.
+         * @return this builder instance.
+         */
+        @Contract(value = "_ -> this")
+        public Builder cache(@Nullable ResultCache value) {
+            cache = value;
+            return this;
+        }
+
+        /**
+         * Set the executor used for running asynchronous command executions.
+         * By default, a shared executor bounded by the number of available processors is used.
+         *
+         * @param value the executor to use, or {@code null} to revert to the default executor.
+         * @return this builder instance.
+         */
+        @Contract(value = "_ -> this")
+        public Builder executor(@Nullable Executor value) {
+            executor = value;
+            return this;
+        }
+
+        /**
+         * Execute the same query on each of the specified targets concurrently,
+         * using the configured {@linkplain #executor(Executor) executor}.
+         * Targets that can not be read are reported as failed results, rather than stopping the whole scan.
+         *
+         * @param targets the paths to target, mustn't be {@code null}.
+         * @param query the query to execute on each target, mustn't be {@code null}.
+         * @param <T> the type of the query result.
+         * @return the results, yielded in order of completion.
+         * @throws NullPointerException if the targets or query are {@code null}.
+         */
+        @Contract("_, _ -> new")
+        public <T> @NotNull Scan<T> scan(@NotNull Collection<Path> targets, @NotNull Query<T> query) {
+            Objects.requireNonNull(targets, "Targets must not be null!");
+            Objects.requireNonNull(query, "Query must not be null!");
+            List<Path> paths = new ArrayList<>(targets);
+            List<CompletableFuture<T>> futures = new ArrayList<>(paths.size());
+            for (Path path : paths) {
+                CompletableFuture<T> future;
+                try {
+                    future = target(path).async(query);
+                } catch (RuntimeException ex) {
+                    future = new CompletableFuture<>();
+                    future.completeExceptionally(ex);
+                }
+                futures.add(future);
+            }
+            return new Scan<>(paths, futures);
+        }
+
         /**
          * Create a new command instance targeting the specified path.
          *
@@ -289,21 +667,315 @@ public final class CLOC {
          */
         @Contract("_ -> new")
         public @NotNull CLOC target(@NotNull Path path) {
-            File executable = getExecutable();
             File file = Objects.requireNonNull(path, "Path must not be null!").toFile();
             if (!file.exists()) throw new IllegalArgumentException("Unable to read: " + path);
+            return build(commandLine -> commandLine.createArg().setFile(file), path, Collections.singleton(path));
+        }
+
+        /**
+         * Create a new batch of commands targeting the specified paths.
+         * Rather than executing a separate command for each target,
+         * targets are counted together in groups of at most {@linkplain #batchSize(int) batch size},
+         * after which the results are split back by target.
+         *
+         * @param paths the paths to target, mustn't be {@code null} or contain {@code null} elements.
+         * @return a new batch targeting the specified paths.
+         * @throws NullPointerException if the paths or any of its elements are {@code null}.
+         * @throws IllegalArgumentException if any of the paths doesn't exist.
+         */
+        @Contract("_ -> new")
+        public @NotNull Batch targets(@NotNull Collection<Path> paths) {
+            Objects.requireNonNull(paths, "Paths must not be null!");
+            List<Path> targets = new ArrayList<>(paths.size());
+            for (Path path : paths) {
+                File file = Objects.requireNonNull(path, "Path must not be null!").toFile();
+                if (!file.exists()) throw new IllegalArgumentException("Unable to read: " + path);
+                targets.add(path);
+            }
+            return new Batch(copy(), targets, batchSize);
+        }
+
+        /**
+         * Create a new collection of sources that do not reside on disk, such as in-memory file contents or archives.
+         * Sources are staged into a scratch tree within the default temporary-file directory,
+         * and counted together in groups of at most {@linkplain #batchSize(int) batch size} identifiers.
+         *
+         * @param <K> the type of source identifiers.
+         * @return a new, empty collection of sources.
+         */
+        @Contract("-> new")
+        public <K> @NotNull Sources<K> sources() {
+            return new Sources<>(copy(), null, batchSize);
+        }
+
+        /**
+         * Create a new collection of sources that do not reside on disk, such as in-memory file contents or archives.
+         * Sources are staged into a scratch tree within the specified directory,
+         * which should preferably reside on a memory-backed file system, such as {@code /dev/shm}.
+         *
+         * @param <K> the type of source identifiers.
+         * @param directory the directory in which to stage the sources, mustn't be {@code null}.
+         * @return a new, empty collection of sources.
+         * @throws NullPointerException if the directory is {@code null}.
+         * @throws IllegalArgumentException if the path is not a directory.
+         * @see #sources()
+         */
+        @Contract("_ -> new")
+        public <K> @NotNull Sources<K> sources(@NotNull Path directory) {
+            File file = Objects.requireNonNull(directory, "Directory must not be null!").toFile();
+            if (!file.isDirectory()) throw new IllegalArgumentException("Not a directory: " + directory);
+            return new Sources<>(copy(), directory, batchSize);
+        }
+
+        /**
+         * Create a new history of the specified Git repository,
+         * used for counting the physical lines of source code at each of its commits.
+         * Files are read directly from the repository objects, so the worktree is left untouched.
+         * Requires {@code git} to be available on the path.
+         *
+         * @param path the path to the root of a local Git repository, mustn't be {@code null}.
+         * @return a new history of the specified repository.
+         * @throws NullPointerException if the path is {@code null}.
+         * @throws IllegalArgumentException if the path is not a directory.
+         * @throws IllegalStateException if {@linkplain #respectGitignore(boolean) gitignore rules} are respected,
+         * as they are not read from the repository objects.
+         */
+        @Contract("_ -> new")
+        public @NotNull History history(@NotNull Path path) {
+            File file = Objects.requireNonNull(path, "Path must not be null!").toFile();
+            if (!file.isDirectory()) throw new IllegalArgumentException("Not a directory: " + path);
+            if (gitignore) throw new IllegalStateException("Gitignore rules are not supported by history!");
+            Builder copy = copy();
+            FileCounter counter = copy.counter();
+            if (cache != null) {
+                String signature = signature();
+                FileCounter fallback = counter;
+                counter = files -> cache.count(files, signature, fallback);
+            }
+            return new History(path, isUniquenessChecked(), batchSize, copy.filter(), counter);
+        }
+
+        /**
+         * Count the physical lines of source code in the specified directory,
+         * and keep the counts up to date as its files change.
+         *
+         * @param path the path to the directory to watch, mustn't be {@code null}.
+         * @return a new watch of the specified directory, which must be closed once no longer needed.
+         * @throws NullPointerException if the path is {@code null}.
+         * @throws IllegalArgumentException if the path is not a directory.
+         * @throws CLOCException if the initial count fails.
+         * @see #watch(Path, Consumer)
+         */
+        @Contract("_ -> new")
+        public @NotNull Watch watch(@NotNull Path path) throws CLOCException {
+            return watch(path, null);
+        }
+
+        /**
+         * Count the physical lines of source code in the specified directory,
+         * and keep the counts up to date as its files change.
+         * The initial count is performed before this method returns.
+         * Each subsequent update is reported to the listener, from a thread dedicated to the watch.
+         * Exceptions thrown by the listener are ignored.
+         *
+         * @param path the path to the directory to watch, mustn't be {@code null}.
+         * @param listener the action performed with the report of each update, or {@code null} to only poll snapshots.
+         * @return a new watch of the specified directory, which must be closed once no longer needed.
+         * @throws NullPointerException if the path is {@code null}.
+         * @throws IllegalArgumentException if the path is not a directory.
+         * @throws CLOCException if the initial count fails.
+         */
+        @Contract("_, _ -> new")
+        public @NotNull Watch watch(
+                @NotNull Path path, @Nullable Consumer<? super Report> listener
+        ) throws CLOCException {
+            File file = Objects.requireNonNull(path, "Path must not be null!").toFile();
+            if (!file.isDirectory()) throw new IllegalArgumentException("Not a directory: " + path);
+            Builder copy = copy();
+            FileCounter counter = copy.counter();
+            if (cache != null) {
+                String signature = signature();
+                FileCounter fallback = counter;
+                counter = files -> cache.count(files, signature, fallback);
+            }
+            boolean followLinks = flags.contains("follow-links");
+            boolean noRecurse = flags.contains("no-recurse");
+            return new Watch(path, followLinks, noRecurse, copy.filter(), counter, listener);
+        }
+
+        CLOC listFile(Path path, Collection<Path> contents) {
+            File file = path.toFile();
+            String argument = "--list-file=" + file.getAbsolutePath();
+            return build(commandLine -> commandLine.createArg(argument), null, contents, "skip-uniqueness");
+        }
+
+        FileCounts count(List<Path> files) throws CLOCException {
+            if (files.isEmpty()) return new FileCounts();
+            Path list;
+            try {
+                list = ListFiles.write(files);
+            } catch (IOException ex) {
+                throw new CLOCException(ex);
+            }
+            try {
+                return listFile(list, files).countLinesByFile();
+            } finally {
+                ListFiles.delete(list);
+            }
+        }
+
+        /**
+         * Determine whether the target files are collected in Java and handed to the command explicitly,
+         * in which case all result shapes are derived from the per-file counts.
+         *
+         * @return {@code true} if any of the options handled within the JVM are set.
+         */
+        boolean isCollected() {
+            return cache != null
+                    || javaEngine
+                    || javaUniqueness
+                    || shards > 1
+                    || !filter().isEmpty();
+        }
+
+        /**
+         * Count the files collected in Java, using the cache if one is configured.
+         *
+         * @param files the absolute paths of the files to count.
+         * @return the counts of each file that was recognized as source code.
+         * @throws CLOCException if an error occurs while counting the files.
+         */
+        FileCounts collect(List<Path> files) throws CLOCException {
+            FileCounter counter = counter();
+            return cache != null ? cache.count(files, signature(), counter) : counter.count(files);
+        }
+
+        /**
+         * Obtain the counter used for files collected in Java, before any caching is applied.
+         *
+         * @return a counter handing files to the command, possibly split into shards, or counting them within the JVM.
+         */
+        FileCounter counter() {
+            return counter(shards);
+        }
+
+        FileCounter counter(int shards) {
+            FileCounter counter = this::count;
+            if (shards > 1) counter = new ShardedCounter(counter, shards);
+            if (!javaEngine) return counter;
+            boolean docstringAsCode = flags.contains("docstring-as-code");
+            return new JavaCounter(counter, docstringAsCode, maxFileSize(), languageFilter());
+        }
+
+        /**
+         * @return the size in bytes above which files are skipped.
+         */
+        long maxFileSize() {
+            return Long.parseLong(parameters.getOrDefault("max-file-size", "100")) << 20;
+        }
+
+        /**
+         * @return a predicate accepting the names of languages that are counted, matched case-insensitively.
+         */
+        Predicate<String> languageFilter() {
+            Set<String> included = languages("include-lang");
+            Set<String> excluded = languages("exclude-lang");
+            return language -> {
+                String name = language.toLowerCase(Locale.ROOT);
+                return (included.isEmpty() || included.contains(name)) && !excluded.contains(name);
+            };
+        }
+
+        private Set<String> languages(String parameter) {
+            String value = parameters.get(parameter);
+            if (value == null) return Collections.emptySet();
+            return Stream.of(value.split(","))
+                    .map(language -> language.toLowerCase(Locale.ROOT))
+                    .collect(Collectors.toSet());
+        }
+
+        /**
+         * Collect the files that the command would consider when given the specified target,
+         * pruning those excluded by the {@linkplain #filter() filter}.
+         *
+         * @param target the target file or directory.
+         * @return the absolute, normalized paths of the collected files, in lexicographical order.
+         * @throws CLOCException if the target could not be traversed.
+         */
+        List<Path> walk(Path target) throws CLOCException {
+            boolean followLinks = flags.contains("follow-links");
+            boolean noRecurse = flags.contains("no-recurse");
+            try {
+                return SourceWalker.walk(target, followLinks, noRecurse, filter());
+            } catch (UncheckedIOException ex) {
+                throw new CLOCException(ex.getCause());
+            }
+        }
 
+        SourceFilter filter() {
+            return new SourceFilter(excludedDirectories, includedExtensions, excludedExtensions, gitignore);
+        }
+
+        boolean isUniquenessChecked() {
+            return !flags.contains("skip-uniqueness");
+        }
+
+        /**
+         * Obtain the options that affect how individual files are counted,
+         * as opposed to those that affect which files are counted or how the command is executed.
+         *
+         * @return a string uniquely identifying the counting options and {@code cloc} version.
+         */
+        String signature() {
+            Set<String> ignored = Stream.of(
+                    "json", "quiet", "follow-links", "no-recurse", "skip-uniqueness", "processes"
+            ).collect(Collectors.toSet());
+            Stream<String> options = Stream.concat(
+                    flags.stream().filter(flag -> !ignored.contains(flag)),
+                    parameters.entrySet().stream()
+                            .filter(entry -> !ignored.contains(entry.getKey()))
+                            .map(entry -> entry.getKey() + "=" + entry.getValue())
+            );
+            return Stream.concat(Stream.of(String.valueOf(getVersion())), options.sorted())
+                    .collect(Collectors.joining(" "));
+        }
+
+        private Builder copy() {
+            Builder copy = new Builder();
+            copy.timeout = timeout;
+            copy.batchSize = batchSize;
+            copy.workers = workers;
+            copy.scheduler = scheduler;
+            copy.executor = executor;
+            copy.cache = cache;
+            copy.javaEngine = javaEngine;
+            copy.shards = shards;
+            copy.excludedDirectories.addAll(excludedDirectories);
+            copy.includedExtensions.addAll(includedExtensions);
+            copy.excludedExtensions.addAll(excludedExtensions);
+            copy.gitignore = gitignore;
+            copy.javaUniqueness = javaUniqueness;
+            copy.flags.clear();
+            copy.flags.addAll(flags);
+            copy.parameters.putAll(parameters);
+            return copy;
+        }
+
+        private CLOC build(
+                Consumer<CommandLine> argument, @Nullable Path target, Collection<Path> inputs, String... extra
+        ) {
+            File executable = getExecutable();
             CommandLine commandLine = new CommandLine();
             commandLine.createArg("perl");
             commandLine.createArg().setFile(executable);
-            commandLine.createArg().setFile(file);
-            flags.stream()
+            argument.accept(commandLine);
+            Stream.concat(flags.stream(), Stream.of(extra).filter(flag -> !flags.contains(flag)))
                     .map(flag -> "--" + flag)
                     .forEach(commandLine::createArg);
             parameters.entrySet().stream()
                     .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
                     .forEach(commandLine::createArg);
-            return new CLOC(commandLine, timeout);
+            return new CLOC(commandLine, copy(), target, inputs);
         }
     }
 
@@ -314,7 +986,8 @@ public final class CLOC {
      * @throws CLOCException if an error occurs while executing the command.
      */
     public ObjectNode linesByLanguage() throws CLOCException {
-        return execute(commandLine.clone(), timeout);
+        if (isCollected()) return collect().linesByLanguage();
+        return execute(commandLine.clone(), TREE);
     }
 
     /**
@@ -324,7 +997,8 @@ public final class CLOC {
      * @throws CLOCException if an error occurs while executing the command.
      */
     public ObjectNode linesByFile() throws CLOCException {
-        return execute(commandLine.withArgument("--by-file"), timeout);
+        if (isCollected()) return collect().linesByFile();
+        return execute(commandLine.withArgument("--by-file"), TREE);
     }
 
     /**
@@ -334,7 +1008,8 @@ public final class CLOC {
      * @throws CLOCException if an error occurs while executing the command.
      */
     public ObjectNode linesByFileAndLanguage() throws CLOCException {
-        return execute(commandLine.withArgument("--by-file-by-lang"), timeout);
+        if (isCollected()) return collect().linesByFileAndLanguage();
+        return execute(commandLine.withArgument("--by-file-by-lang"), TREE);
     }
 
     /**
@@ -344,23 +1019,427 @@ public final class CLOC {
      * @throws CLOCException if an error occurs while executing the command.
      */
     public ObjectNode countFiles() throws CLOCException {
-        return execute(commandLine.withArgument("--only-count-files"), timeout);
+        if (isCollected()) return collect().countFiles();
+        return execute(commandLine.withArgument("--only-count-files"), TREE);
+    }
+
+    /**
+     * Count the physical lines of source code, reporting typed results by language.
+     *
+     * @return the line counts of each language.
+     * @throws CLOCException if an error occurs while executing the command.
+     */
+    public LanguageCounts countLinesByLanguage() throws CLOCException {
+        if (isCollected()) return collect().getLanguageCounts();
+        return execute(commandLine.clone(), OutputParsers.languageCounts());
+    }
+
+    /**
+     * Count the physical lines of source code, reporting typed results by file.
+     *
+     * @return the line counts of each file.
+     * @throws CLOCException if an error occurs while executing the command.
+     */
+    public FileCounts countLinesByFile() throws CLOCException {
+        if (isCollected()) return collect().getFileCounts();
+        return execute(commandLine.withArgument("--by-file"), OutputParsers.fileCounts());
+    }
+
+    /**
+     * Count the physical lines of source code, passing the counts of each file to the specified action.
+     * Each file is visited exactly once, as soon as it is read from the command output.
+     * The file counts are not retained afterward, so memory usage does not grow with the number of files.
+     *
+     * @param action the action to perform on each file, mustn't be {@code null}.
+     * @return the line counts of all visited files, grouped by language.
+     * @throws NullPointerException if the action is {@code null}.
+     * @throws CLOCException if an error occurs while executing the command.
+     */
+    public LanguageCounts linesByFile(@NotNull Consumer<? super FileCount> action) throws CLOCException {
+        Objects.requireNonNull(action, "Action must not be null!");
+        if (isCollected()) {
+            FileCounts counts = collect().getFileCounts();
+            counts.forEach(action);
+            return counts.getLanguageCounts();
+        }
+        return execute(commandLine.withArgument("--by-file"), OutputParsers.fileCounts(action));
     }
 
-    private static ObjectNode execute(Commandline commandline, int timeout) throws CLOCException {
+    /**
+     * Count the physical lines of source code once, reporting results in all supported shapes.
+     * Use this instead of calling several of the other methods on the same target,
+     * as each of those executes the command anew.
+     *
+     * @return the report from which all result shapes can be obtained.
+     * @throws CLOCException if an error occurs while executing the command.
+     */
+    public Report report() throws CLOCException {
+        if (isCollected()) return collect();
+        return execute(commandLine.withArgument("--by-file"), OutputParsers.report());
+    }
+
+    /**
+     * Start counting the physical lines of source code incrementally, in separate units of work.
+     * Unlike the other methods, which fail outright if the command times out,
+     * the returned execution retains the results of all units completed before its deadline,
+     * along with the files that were left unprocessed.
+     * The number of units processed concurrently is determined by the number of {@link Builder#shards(int) shards}.
+     *
+     * @param deadline the time after which the execution is cancelled, or {@code null} to run until completion.
+     * @return a handle to the started execution.
+     * @throws CLOCException if an error occurs while traversing the target.
+     * @throws IllegalArgumentException if the deadline is negative.
+     */
+    public @NotNull Execution start(@Nullable Duration deadline) throws CLOCException {
+        return start(deadline, null);
+    }
+
+    /**
+     * Start counting the physical lines of source code incrementally, in separate units of work,
+     * notifying the specified action with the results accumulated so far after each unit is completed.
+     *
+     * @param deadline the time after which the execution is cancelled, or {@code null} to run until completion.
+     * @param action the action notified of progress, or {@code null} if progress is not reported.
+     * @return a handle to the started execution.
+     * @throws CLOCException if an error occurs while traversing the target.
+     * @throws IllegalArgumentException if the deadline is negative.
+     * @see #start(Duration)
+     */
+    public @NotNull Execution start(
+            @Nullable Duration deadline, @Nullable Consumer<? super PartialReport> action
+    ) throws CLOCException {
+        if (deadline != null && deadline.isNegative())
+            throw new IllegalArgumentException("Deadline must not be negative!");
+        long timeout = deadline != null ? Math.max(deadline.toNanos(), 1) : 0;
+        List<Path> files = walk();
+        List<List<String>> duplicates = builder.isUniquenessChecked()
+                ? Duplicates.group(files.stream().map(ListFiles::normalize).collect(Collectors.toList()))
+                : Collections.emptyList();
+        FileCounter counter = builder.counter(1);
+        if (builder.cache != null) {
+            ResultCache cache = builder.cache;
+            String signature = builder.signature();
+            FileCounter fallback = counter;
+            counter = part -> cache.count(part, signature, fallback);
+        }
+        int units = (files.size() + UNIT_SIZE - 1) / UNIT_SIZE;
+        List<List<Path>> parts = ShardedCounter.split(files, Math.max(units, builder.shards));
+        Execution execution = new Execution(parts, duplicates, action);
+        execution.start(counter, builder.shards, timeout);
+        return execution;
+    }
+
+    /**
+     * Asynchronously count the physical lines of source code, reporting results by language.
+     *
+     * @return A future JSON object representation of the command output.
+     * @see #linesByLanguage()
+     */
+    public CompletableFuture<ObjectNode> linesByLanguageAsync() {
+        return async(CLOC::linesByLanguage);
+    }
+
+    /**
+     * Asynchronously count the physical lines of source code, reporting results by file.
+     *
+     * @return A future JSON object representation of the command output.
+     * @see #linesByFile()
+     */
+    public CompletableFuture<ObjectNode> linesByFileAsync() {
+        return async(CLOC::linesByFile);
+    }
+
+    /**
+     * Asynchronously count the physical lines of source code, reporting results by file and language.
+     *
+     * @return A future JSON object representation of the command output.
+     * @see #linesByFileAndLanguage()
+     */
+    public CompletableFuture<ObjectNode> linesByFileAndLanguageAsync() {
+        return async(CLOC::linesByFileAndLanguage);
+    }
+
+    /**
+     * Asynchronously count the number of files, reporting results by language.
+     *
+     * @return A future JSON object representation of the command output.
+     * @see #countFiles()
+     */
+    public CompletableFuture<ObjectNode> countFilesAsync() {
+        return async(CLOC::countFiles);
+    }
+
+    /**
+     * Asynchronously count the physical lines of source code once, reporting results in all supported shapes.
+     *
+     * @return A future report from which all result shapes can be obtained.
+     * @see #report()
+     */
+    public CompletableFuture<Report> reportAsync() {
+        return async(CLOC::report);
+    }
+
+    /**
+     * Asynchronously execute the specified query on this command, using the configured executor.
+     * Cancelling the returned future before the execution starts prevents the command from running.
+     *
+     * @param query the query to execute, mustn't be {@code null}.
+     * @param <T> the type of the query result.
+     * @return A future result of the query.
+     * @throws NullPointerException if the query is {@code null}.
+     */
+    public <T> CompletableFuture<T> async(@NotNull Query<T> query) {
+        Objects.requireNonNull(query, "Query must not be null!");
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long submitted = System.nanoTime();
         try {
-            StringStreamConsumer out = new StringStreamConsumer();
-            StringStreamConsumer err = new StringStreamConsumer();
-            int code = CommandLineUtils.executeCommandLine(commandline, out, err, timeout);
-            if (code != 0) throw new CLOCException(err.getOutput());
-            JsonNode json = OUTPUT_MAPPER.readTree(out.getOutput());
-            return OUTPUT_MAPPER.convertValue(json, ObjectNode.class);
-        } catch (JsonProcessingException ex) {
+            executor.execute(() -> {
+                if (future.isDone()) return;
+                QUEUE_TIME.set(System.nanoTime() - submitted);
+                try {
+                    future.complete(query.execute(this));
+                } catch (CLOCException | RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                } finally {
+                    QUEUE_TIME.remove();
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * A query executed on a {@link CLOC} command, typically a reference to one of its counting methods.
+     *
+     * @param <T> the type of the query result.
+     */
+    @FunctionalInterface
+    public interface Query<T> {
+
+        /**
+         * Execute the query on the specified command.
+         *
+         * @param command the command to query.
+         * @return the query result.
+         * @throws CLOCException if an error occurs while executing the command.
+         */
+        T execute(CLOC command) throws CLOCException;
+    }
+
+    private boolean isCollected() {
+        return target != null && builder.isCollected();
+    }
+
+    /*
+     * Files are checked for uniqueness only after they are counted,
+     * since only files recognized as source code take part in the check.
+     */
+    private Report collect() throws CLOCException {
+        List<Path> files = walk();
+        FileCounts counts = builder.collect(files);
+        if (!builder.isUniquenessChecked()) return new Report(null, counts);
+        List<String> paths = new ArrayList<>(counts.size());
+        counts.forEach(count -> paths.add(count.getPath()));
+        Map<String, String> duplicates = Duplicates.find(paths);
+        if (!duplicates.isEmpty()) counts = counts.filter(path -> !duplicates.containsKey(path));
+        return new Report(null, counts, duplicates);
+    }
+
+    private List<Path> walk() throws CLOCException {
+        return builder.walk(target);
+    }
+
+    private <T> T execute(CommandLine commandline, OutputHandler<T> handler) throws CLOCException {
+        ExecutionListener listener = LISTENER;
+        ExecutionEvent event = new ExecutionEvent(Arrays.asList(commandline.getCommandline()), workers != null);
+        Long queueTime = QUEUE_TIME.get();
+        if (queueTime != null) {
+            event.queueTime = queueTime;
+            QUEUE_TIME.remove();
+        }
+        OutputHandler<T> parser = listener != ExecutionListener.NOOP ? measure(handler, event) : handler;
+        long reserved = -1;
+        try {
+            if (scheduler != null) {
+                boolean followLinks = builder.flags.contains("follow-links");
+                long estimate = Scheduler.estimate(inputs, builder.maxFileSize(), followLinks);
+                long waiting = System.nanoTime();
+                reserved = scheduler.acquire(estimate);
+                event.queueTime += System.nanoTime() - waiting;
+            }
+            T result;
+            if (workers == null) {
+                result = execute(commandline, timeout, parser, event);
+            } else {
+                result = workers.execute(commandline.getCommandArguments(), timeout, stream -> {
+                    try (JsonParser json = OUTPUT_MAPPER.createParser(stream)) {
+                        return parser.handle(json);
+                    }
+                }, event);
+            }
+            event.resultSize = sizeOf(result);
+            return result;
+        } catch (CLOCException ex) {
+            event.exception = ex;
+            throw ex;
+        } finally {
+            if (reserved >= 0) scheduler.release(reserved);
+            notify(listener, event);
+        }
+    }
+
+    private static <T> OutputHandler<T> measure(OutputHandler<T> handler, ExecutionEvent event) {
+        return parser -> {
+            boolean cpu = THREADS.isCurrentThreadCpuTimeSupported();
+            long start = cpu ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+            try {
+                return handler.handle(parser);
+            } finally {
+                long end = cpu ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+                event.parseTime = end - start;
+            }
+        };
+    }
+
+    private static int sizeOf(Object result) {
+        if (result instanceof ObjectNode) {
+            ObjectNode node = (ObjectNode) result;
+            int size = node.size();
+            if (node.has("header")) size--;
+            if (node.has("SUM")) size--;
+            return size;
+        } else if (result instanceof FileCounts) {
+            return ((FileCounts) result).size();
+        } else if (result instanceof LanguageCounts) {
+            return ((LanguageCounts) result).getLanguages().size();
+        } else if (result instanceof Report) {
+            return ((Report) result).getFileCounts().size();
+        }
+        return -1;
+    }
+
+    private static void notify(ExecutionListener listener, ExecutionEvent event) {
+        if (listener == ExecutionListener.NOOP) return;
+        try {
+            listener.executed(event);
+        } catch (RuntimeException ignored) {
+        }
+    }
+
+    private static <T> T execute(
+            Commandline commandline, int timeout, OutputHandler<T> handler, ExecutionEvent event
+    ) throws CLOCException {
+        Cancellation cancellation = Cancellation.current();
+        if (cancellation != null && cancellation.isCancelled()) throw new CLOCException("Execution was cancelled!");
+        File err;
+        try {
+            err = File.createTempFile("cloc", ".err");
+        } catch (IOException ex) {
+            throw new CLOCException(ex);
+        }
+        Process process;
+        long spawned = System.nanoTime();
+        try {
+            process = Processes.start(commandline.getCommandline(), err);
+        } catch (IOException ex) {
+            FileUtils.fileDelete(err.getPath());
+            throw new CLOCException(ex.getMessage(), ex);
+        }
+        long started = System.nanoTime();
+        event.spawnTime = started - spawned;
+        AtomicBoolean killed = new AtomicBoolean(false);
+        Runnable kill = () -> {
+            killed.set(true);
+            process.destroy();
+        };
+        ScheduledFuture<?> watchdog = timeout > 0 ? Watchdog.schedule(kill, timeout, TimeUnit.SECONDS) : null;
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        Runnable unregister = cancellation != null ? cancellation.register(() -> {
+            cancelled.set(true);
+            process.destroy();
+        }) : null;
+        CountingInputStream stdout = new CountingInputStream(process.getInputStream());
+        try {
+            process.getOutputStream().close();
+            T result = null;
+            IOException failure = null;
+            try (JsonParser parser = OUTPUT_MAPPER.createParser(stdout)) {
+                parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+                result = handler.handle(parser);
+            } catch (IOException ex) {
+                failure = ex;
+            }
+            drain(stdout);
+            int code = Processes.waitFor(process);
+            event.stderrBytes = err.length();
+            if (cancelled.get()) throw new CLOCException("Execution was cancelled!");
+            event.timedOut = killed.get();
+            if (event.timedOut) throw new CLOCException("Process timed out after " + timeout + " seconds!");
+            event.exitCode = code;
+            if (code != 0) throw new CLOCException(FileUtils.fileRead(err));
+            if (failure != null) throw new CLOCException("Unexpected output format!", failure);
+            return result;
+        } catch (IOException ex) {
+            if (cancelled.get()) throw new CLOCException("Execution was cancelled!");
+            event.timedOut = killed.get();
+            if (event.timedOut) throw new CLOCException("Process timed out after " + timeout + " seconds!");
+            throw new CLOCException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
             throw new CLOCException(ex);
-        } catch (CommandLineException ex) {
-            throw new CLOCException(ex.getMessage(), ex.getCause());
-        } catch (IllegalArgumentException ex) {
-            throw new CLOCException("Unexpected output format!", ex);
+        } finally {
+            if (watchdog != null) watchdog.cancel(false);
+            if (unregister != null) unregister.run();
+            event.wallTime = System.nanoTime() - started;
+            event.stdoutBytes = stdout.count;
+            closeQuietly(stdout);
+            process.destroy();
+            FileUtils.fileDelete(err.getPath());
+        }
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @SuppressWarnings({"checkstyle:EmptyStatement", "StatementWithEmptyBody"})
+    private static void drain(InputStream stream) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (stream.read(buffer, 0, buffer.length) != -1);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count = 0;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result != -1) count++;
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (result != -1) count += result;
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long result = super.skip(n);
+            count += result;
+            return result;
         }
     }
 
@@ -390,6 +1469,17 @@ public final class CLOC {
         }
 
 
+        /**
+         * Obtain the arguments passed to the script itself,
+         * i.e. all arguments excluding the interpreter and the script path.
+         *
+         * @return the list of command arguments.
+         */
+        public @NotNull List<String> getCommandArguments() {
+            String[] arguments = getArguments();
+            return Arrays.asList(arguments).subList(2, arguments.length);
+        }
+
         /**
          * Creates an argument object and sets its value.
          *
@@ -399,7 +1489,4 @@ public final class CLOC {
             createArg().setValue(value);
         }
     }
-
-    private static final class StringStreamConsumer extends CommandLineUtils.StringStreamConsumer {
-    }
 }
@@ -0,0 +1,87 @@
+package ch.usi.si.seart.cloc;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Allows stopping the processes started on behalf of an execution that is no longer needed.
+ * Processes started while counting on behalf of a cancellation register an action that terminates them,
+ * which is performed as soon as the cancellation is requested.
+ */
+final class Cancellation {
+
+    private static final ThreadLocal<Cancellation> CURRENT = new ThreadLocal<>();
+
+    private final Set<Runnable> actions = new LinkedHashSet<>();
+    private boolean cancelled = false;
+
+    /**
+     * @return the cancellation on whose behalf the current thread is counting, or {@code null} if there is none.
+     */
+    static Cancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Count the specified files on behalf of this cancellation.
+     *
+     * @param counter the counter to use.
+     * @param files the files to count.
+     * @return the counts of each file that was recognized as source code.
+     * @throws CLOCException if an error occurs while counting, or if the count was cancelled.
+     */
+    FileCounts count(FileCounter counter, List<Path> files) throws CLOCException {
+        if (isCancelled()) throw new CLOCException("Execution was cancelled!");
+        Cancellation previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return counter.count(files);
+        } finally {
+            if (previous != null) CURRENT.set(previous);
+            else CURRENT.remove();
+        }
+    }
+
+    /**
+     * Register an action to perform upon cancellation.
+     * If the cancellation has already been requested, the action is performed immediately.
+     *
+     * @param action the action to perform.
+     * @return an action that unregisters the action.
+     */
+    Runnable register(Runnable action) {
+        synchronized (this) {
+            if (!cancelled) {
+                actions.add(action);
+                return () -> unregister(action);
+            }
+        }
+        action.run();
+        return () -> { };
+    }
+
+    private synchronized void unregister(Runnable action) {
+        actions.remove(action);
+    }
+
+    /**
+     * Request the cancellation, performing all registered actions.
+     */
+    void cancel() {
+        List<Runnable> pending;
+        synchronized (this) {
+            if (cancelled) return;
+            cancelled = true;
+            pending = new ArrayList<>(actions);
+            actions.clear();
+        }
+        pending.forEach(Runnable::run);
+    }
+
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,315 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Line counts of each file rolled up along the directory hierarchy.
+ * <p>
+ * The tree is built in a single pass over the per-file counts, with every directory holding the totals of its whole
+ * subtree, grouped by language. Looking up a directory only walks the path from the root, so its totals are obtained
+ * in time proportional to its depth, regardless of the number of counted files. Paths are split on both forward
+ * and backward slashes, with {@code .} segments ignored. Absolute paths are rooted at a directory named {@code /}.
+ * Trees are immutable: merging or subtracting trees produces a new one.
+ *
+ * @author Ozren Dabić
+ */
+public final class DirectoryTree {
+
+    private static final String HEADER = "header";
+    private static final String SUM = "SUM";
+
+    private final Node root;
+
+    private DirectoryTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Build the tree from typed per-file counts.
+     *
+     * @param files the line counts of each file.
+     * @return the tree of the counted files.
+     * @throws NullPointerException if the counts are {@code null}.
+     * @see Report#getDirectoryTree()
+     */
+    public static DirectoryTree of(@NotNull FileCounts files) {
+        Objects.requireNonNull(files, "File counts must not be null!");
+        Node root = new Node();
+        for (int i = 0; i < files.size(); i++) {
+            root.add(files.path(i), files.language(i), files.blank(i), files.comment(i), files.code(i));
+        }
+        return new DirectoryTree(root);
+    }
+
+    /**
+     * Build the tree from the JSON output of counting by file.
+     *
+     * @param linesByFile the output of {@link CLOC#linesByFile()}.
+     * @return the tree of the counted files.
+     * @throws NullPointerException if the output is {@code null}.
+     * @throws IllegalArgumentException if an entry of the output does not describe a file.
+     */
+    public static DirectoryTree of(@NotNull ObjectNode linesByFile) {
+        Objects.requireNonNull(linesByFile, "Output must not be null!");
+        Node root = new Node();
+        for (Map.Entry<String, JsonNode> entry : linesByFile.properties()) {
+            String path = entry.getKey();
+            if (HEADER.equals(path) || SUM.equals(path)) continue;
+            JsonNode file = entry.getValue();
+            JsonNode language = file.get("language");
+            if (language == null || !language.isTextual()) {
+                throw new IllegalArgumentException("Not a file entry: " + path);
+            }
+            root.add(
+                    path,
+                    Languages.id(language.textValue()),
+                    file.path("blank").asLong(),
+                    file.path("comment").asLong(),
+                    file.path("code").asLong()
+            );
+        }
+        return new DirectoryTree(root);
+    }
+
+    /**
+     * Obtain the totals of a directory, including all of its subdirectories.
+     *
+     * @param directory the path of the directory, in the same form as the counted file paths.
+     * The empty string denotes the root of the tree.
+     * @return the line counts of all files in the directory subtree, grouped by language.
+     * Empty if no counted file resides in the directory.
+     * @throws NullPointerException if the path is {@code null}.
+     */
+    public LanguageCounts getCounts(@NotNull String directory) {
+        Node node = root.find(directory);
+        return node != null ? node.counts : new LanguageCounts();
+    }
+
+    /**
+     * Obtain the totals of each immediate subdirectory of a directory.
+     *
+     * @param directory the path of the directory, in the same form as the counted file paths.
+     * The empty string denotes the root of the tree.
+     * @return the line counts of each subdirectory, keyed by path, in lexicographical order.
+     * @throws NullPointerException if the path is {@code null}.
+     */
+    public Map<String, LanguageCounts> getSubdirectories(@NotNull String directory) {
+        Node node = root.find(directory);
+        if (node == null) return Collections.emptyMap();
+        String prefix = segments(directory).stream().reduce("", DirectoryTree::join);
+        Map<String, LanguageCounts> results = new TreeMap<>();
+        node.children.forEach((name, child) -> results.put(join(prefix, name), child.counts));
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Obtain the totals of all directories at a given depth.
+     *
+     * @param depth the number of path segments of the directories, where 0 denotes the root of the tree.
+     * @return the line counts of each directory, keyed by path, in lexicographical order.
+     * @throws IllegalArgumentException if the depth is negative.
+     */
+    public Map<String, LanguageCounts> getDirectories(int depth) {
+        if (depth < 0) throw new IllegalArgumentException("Depth must not be negative!");
+        Map<String, LanguageCounts> results = new TreeMap<>();
+        root.visit("", depth, (path, node) -> results.put(path, node.counts));
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Obtain the directories with the most lines of code at a given depth.
+     *
+     * @param depth the number of path segments of the directories, where 0 denotes the root of the tree.
+     * @param limit the maximum number of directories to return.
+     * @return the line counts of the largest directories, keyed by path,
+     * in descending order of code lines, with ties broken by path.
+     * @throws IllegalArgumentException if the depth is negative, or the limit is not positive.
+     */
+    public Map<String, LanguageCounts> getLargestDirectories(int depth, int limit) {
+        if (depth < 0) throw new IllegalArgumentException("Depth must not be negative!");
+        if (limit < 1) throw new IllegalArgumentException("Limit must be greater than 0!");
+        Comparator<Map.Entry<String, LanguageCounts>> order = Comparator
+                .<Map.Entry<String, LanguageCounts>>comparingLong(entry -> entry.getValue().getCode())
+                .reversed()
+                .thenComparing(Map.Entry::getKey);
+        PriorityQueue<Map.Entry<String, LanguageCounts>> largest = new PriorityQueue<>(order.reversed());
+        root.visit("", depth, (path, node) -> {
+            largest.add(new AbstractMap.SimpleImmutableEntry<>(path, node.counts));
+            if (largest.size() > limit) largest.poll();
+        });
+        List<Map.Entry<String, LanguageCounts>> entries = new ArrayList<>(largest);
+        entries.sort(order);
+        Map<String, LanguageCounts> results = new LinkedHashMap<>();
+        entries.forEach(entry -> results.put(entry.getKey(), entry.getValue()));
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Combine the counts of this tree with those of another, as if the files of both had been counted together.
+     * Directories whose counts cancel out, as can happen when merging with the difference of two trees, are removed.
+     *
+     * @param other the tree to merge with.
+     * @return a new tree holding the sum of both trees.
+     * @throws NullPointerException if the other tree is {@code null}.
+     */
+    public DirectoryTree merge(@NotNull DirectoryTree other) {
+        Objects.requireNonNull(other, "Tree must not be null!");
+        Node result = root.copy();
+        result.combine(other.root, 1);
+        result.prune();
+        return new DirectoryTree(result);
+    }
+
+    /**
+     * Compute the difference between the counts of this tree and those of another,
+     * such as the changes of each directory between two runs.
+     * Counts of the resulting tree are negative wherever the other tree holds more files or lines,
+     * and directories whose counts cancel out are removed.
+     *
+     * @param other the tree to subtract.
+     * @return a new tree holding the difference between both trees.
+     * @throws NullPointerException if the other tree is {@code null}.
+     */
+    public DirectoryTree subtract(@NotNull DirectoryTree other) {
+        Objects.requireNonNull(other, "Tree must not be null!");
+        Node result = root.copy();
+        result.combine(other.root, -1);
+        result.prune();
+        return new DirectoryTree(result);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        DirectoryTree that = (DirectoryTree) obj;
+        return root.equals(that.root);
+    }
+
+    @Override
+    public int hashCode() {
+        return root.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "DirectoryTree{" + root.counts + '}';
+    }
+
+    private static List<String> segments(String path) {
+        Objects.requireNonNull(path, "Path must not be null!");
+        String normalized = path.replace('\\', '/');
+        List<String> segments = new ArrayList<>();
+        if (normalized.startsWith("/")) segments.add("/");
+        for (String segment : normalized.split("/")) {
+            if (!segment.isEmpty() && !segment.equals(".")) segments.add(segment);
+        }
+        return segments;
+    }
+
+    private static String join(String parent, String name) {
+        if (parent.isEmpty()) return name;
+        return parent.endsWith("/") ? parent + name : parent + "/" + name;
+    }
+
+    private interface Visitor {
+
+        void visit(String path, Node node);
+    }
+
+    /*
+     * The counts of a directory subtree, along with its subdirectories.
+     * Each counted file contributes to every directory on the path from the root to the one containing it.
+     */
+    private static final class Node {
+
+        private final LanguageCounts counts = new LanguageCounts();
+        private final Map<String, Node> children = new HashMap<>();
+
+        private void add(String path, int language, long blank, long comment, long code) {
+            List<String> segments = segments(path);
+            Node node = this;
+            node.counts.add(language, 1, blank, comment, code);
+            for (int i = 0; i < segments.size() - 1; i++) {
+                node = node.children.computeIfAbsent(segments.get(i), ignored -> new Node());
+                node.counts.add(language, 1, blank, comment, code);
+            }
+        }
+
+        private Node find(String path) {
+            Node node = this;
+            for (String segment : segments(path)) {
+                node = node.children.get(segment);
+                if (node == null) return null;
+            }
+            return node;
+        }
+
+        private void visit(String path, int depth, Visitor visitor) {
+            if (depth == 0) {
+                visitor.visit(path, this);
+                return;
+            }
+            children.forEach((name, child) -> child.visit(join(path, name), depth - 1, visitor));
+        }
+
+        private Node copy() {
+            Node copy = new Node();
+            copy.counts.addAll(counts);
+            children.forEach((name, child) -> copy.children.put(name, child.copy()));
+            return copy;
+        }
+
+        private void combine(Node other, int sign) {
+            LanguageCounts source = other.counts;
+            for (int i = 0; i < source.capacity(); i++) {
+                counts.add(
+                        i,
+                        sign * source.files(i),
+                        sign * source.blank(i),
+                        sign * source.comment(i),
+                        sign * source.code(i)
+                );
+            }
+            other.children.forEach((name, child) ->
+                    children.computeIfAbsent(name, ignored -> new Node()).combine(child, sign)
+            );
+        }
+
+        /*
+         * Removes the subdirectories whose counts cancel out, along with all of their descendants.
+         * Returns whether the counts of this directory and all its descendants are zero.
+         */
+        private boolean prune() {
+            children.values().removeIf(Node::prune);
+            return children.isEmpty() && counts.equals(new LanguageCounts());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            Node that = (Node) obj;
+            return counts.equals(that.counts) && children.equals(that.children);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * counts.hashCode() + children.hashCode();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package ch.usi.si.seart.cloc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Identifies files with identical contents, mirroring the uniqueness check performed by {@code cloc}.
+ * <p>
+ * Files are first grouped by size, so only files that share their size with another file are read.
+ * Those are hashed in parallel with a fast non-cryptographic hash,
+ * and files with matching hashes are then compared byte by byte.
+ * Just as with {@code cloc}, only files recognized as source code take part in the check,
+ * and of every group of identical files, the one with the lexicographically largest path is retained.
+ */
+final class Duplicates {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final long UNREADABLE = -1;
+
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private static final ThreadLocal<ByteBuffer[]> BUFFERS = ThreadLocal.withInitial(() -> new ByteBuffer[]{
+            ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN),
+            ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN),
+    });
+
+    private Duplicates() {
+    }
+
+    /**
+     * Find the files whose contents are identical to that of another file in the collection.
+     *
+     * @param paths the paths of the files recognized as source code.
+     * @return the paths of all files except the retained ones,
+     * mapped to the paths of the retained files with identical contents.
+     * Files that are empty or could not be read are never considered duplicates.
+     */
+    static Map<String, String> find(Collection<String> paths) {
+        return find(group(paths), path -> true);
+    }
+
+    /**
+     * Find the files whose contents are identical to that of another file recognized as source code.
+     *
+     * @param groups the groups of files with identical contents.
+     * @param recognized the predicate accepting the paths of files recognized as source code.
+     * @return the paths of all recognized files except the retained ones,
+     * mapped to the paths of the retained files with identical contents.
+     * @see #group(Collection)
+     */
+    static Map<String, String> find(List<List<String>> groups, Predicate<String> recognized) {
+        Map<String, String> duplicates = new HashMap<>();
+        for (List<String> group : groups) {
+            List<String> members = group.stream().filter(recognized).collect(Collectors.toList());
+            String retained = members.isEmpty() ? null : members.get(members.size() - 1);
+            for (int i = 0; i < members.size() - 1; i++) duplicates.put(members.get(i), retained);
+        }
+        return duplicates;
+    }
+
+    /**
+     * Group the files of the collection by their contents,
+     * so that duplicates can be found once it is known which of the files are recognized as source code.
+     *
+     * @param paths the paths of the files to check.
+     * @return the groups of at least two files with identical contents, with each group in lexicographical order.
+     * Files that are empty or could not be read are never part of a group.
+     */
+    static List<List<String>> group(Collection<String> paths) {
+        List<String> sorted = new ArrayList<>(new TreeSet<>(paths));
+        long[] sizes = sorted.parallelStream().mapToLong(Duplicates::size).toArray();
+        Map<Long, List<Integer>> sizeGroups = IntStream.range(0, sizes.length)
+                .filter(i -> sizes[i] > 0)
+                .boxed()
+                .collect(Collectors.groupingBy(i -> sizes[i], LinkedHashMap::new, Collectors.toList()));
+        int[] candidates = sizeGroups.values().stream()
+                .filter(group -> group.size() > 1)
+                .flatMap(List::stream)
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .toArray();
+        if (candidates.length == 0) return Collections.emptyList();
+        long[] hashes = IntStream.of(candidates).parallel().mapToLong(i -> hash(sorted.get(i), sizes[i])).toArray();
+        Map<List<Long>, List<String>> hashGroups = new LinkedHashMap<>();
+        for (int j = 0; j < candidates.length; j++) {
+            int i = candidates[j];
+            if (hashes[j] == UNREADABLE) continue;
+            List<Long> key = new ArrayList<>(2);
+            key.add(sizes[i]);
+            key.add(hashes[j]);
+            hashGroups.computeIfAbsent(key, ignored -> new ArrayList<>()).add(sorted.get(i));
+        }
+        return hashGroups.values().parallelStream()
+                .filter(group -> group.size() > 1)
+                .flatMap(group -> compare(group).stream())
+                .collect(Collectors.toList());
+    }
+
+    /*
+     * Splits a group of files sharing the same size and hash into groups of files that are identical byte by byte.
+     * Each file is compared to the first file of every group found so far, in lexicographical order.
+     */
+    private static List<List<String>> compare(List<String> group) {
+        List<List<String>> groups = new ArrayList<>();
+        for (String path : group) {
+            List<String> match = null;
+            for (List<String> candidate : groups) {
+                if (isEqual(candidate.get(0), path)) {
+                    match = candidate;
+                    break;
+                }
+            }
+            if (match == null) {
+                match = new ArrayList<>();
+                groups.add(match);
+            }
+            match.add(path);
+        }
+        groups.removeIf(candidate -> candidate.size() < 2);
+        return groups;
+    }
+
+    private static long size(String path) {
+        try {
+            return Files.size(Paths.get(path));
+        } catch (IOException ex) {
+            return UNREADABLE;
+        }
+    }
+
+    /*
+     * Hashes the contents eight bytes at a time, in the manner of the xxHash family.
+     * Never returns the value reserved for unreadable files.
+     */
+    private static long hash(String path, long size) {
+        ByteBuffer buffer = BUFFERS.get()[0];
+        long hash = size * PRIME_1;
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            while (fill(channel, buffer)) {
+                while (buffer.remaining() >= Long.BYTES) hash = mix(hash, buffer.getLong());
+                while (buffer.hasRemaining()) hash = mix(hash, buffer.get());
+            }
+        } catch (IOException ex) {
+            return UNREADABLE;
+        }
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        return hash != UNREADABLE ? hash : 0;
+    }
+
+    private static long mix(long hash, long value) {
+        return Long.rotateLeft(hash ^ value * PRIME_2, 31) * PRIME_1;
+    }
+
+    private static boolean isEqual(String first, String second) {
+        ByteBuffer[] buffers = BUFFERS.get();
+        try (
+                FileChannel left = FileChannel.open(Paths.get(first), StandardOpenOption.READ);
+                FileChannel right = FileChannel.open(Paths.get(second), StandardOpenOption.READ)
+        ) {
+            if (left.size() != right.size()) return false;
+            while (true) {
+                boolean more = fill(left, buffers[0]);
+                if (more != fill(right, buffers[1])) return false;
+                if (!more) return true;
+                if (!buffers[0].equals(buffers[1])) return false;
+            }
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /*
+     * Reads the next chunk of the channel into the buffer, leaving it ready to be read.
+     * Returns false once the end of the channel has been reached.
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) break;
+        }
+        buffer.flip();
+        return buffer.hasRemaining();
+    }
+}
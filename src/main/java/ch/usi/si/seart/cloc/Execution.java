@@ -0,0 +1,194 @@
+package ch.usi.si.seart.cloc;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A handle to an incremental execution, which counts the target files in separate units of work.
+ * The results of completed units are retained when the execution is cancelled, or when its deadline passes,
+ * so that partial results can be obtained at any point.
+ *
+ * @author Ozren Dabić
+ */
+public final class Execution {
+
+    private final List<List<Path>> units;
+    private final boolean[] completed;
+    private final FileCounts counts = new FileCounts();
+    private final List<CLOCException> exceptions = new ArrayList<>();
+    private final Cancellation cancellation = new Cancellation();
+    private final CountDownLatch remaining;
+    private final List<List<String>> duplicates;
+    private final Consumer<? super PartialReport> action;
+
+    private ForkJoinPool pool;
+    private ScheduledFuture<?> deadline;
+
+    Execution(List<List<Path>> units, @Nullable Consumer<? super PartialReport> action) {
+        this(units, Collections.emptyList(), action);
+    }
+
+    /**
+     * @param units the files counted by each unit of work.
+     * @param duplicates the groups of files with identical contents, of which only one file is reported per group.
+     * @param action the action notified of progress, or {@code null} if progress is not reported.
+     */
+    Execution(
+            List<List<Path>> units, List<List<String>> duplicates, @Nullable Consumer<? super PartialReport> action
+    ) {
+        this.units = units;
+        this.duplicates = duplicates;
+        this.completed = new boolean[units.size()];
+        this.remaining = new CountDownLatch(units.size());
+        this.action = action;
+    }
+
+    void start(FileCounter counter, int parallelism, long timeout) {
+        if (units.isEmpty()) return;
+        pool = new ForkJoinPool(parallelism);
+        if (timeout > 0) deadline = Watchdog.schedule(this::cancel, timeout, TimeUnit.NANOSECONDS);
+        for (int i = 0; i < units.size(); i++) {
+            int unit = i;
+            pool.execute(() -> run(counter, unit));
+        }
+    }
+
+    private void run(FileCounter counter, int unit) {
+        try {
+            PartialReport report = count(counter, unit);
+            if (report != null) action.accept(report);
+        } finally {
+            remaining.countDown();
+            if (remaining.getCount() == 0) finish();
+        }
+    }
+
+    /*
+     * The pool is only shut down once all units are done, since a pool that is shut down may consider
+     * workers blocked on a process to be idle, and interrupt them while terminating.
+     */
+    private void finish() {
+        if (deadline != null) deadline.cancel(false);
+        pool.shutdown();
+    }
+
+    private PartialReport count(FileCounter counter, int unit) {
+        try {
+            FileCounts result = cancellation.count(counter, units.get(unit));
+            synchronized (this) {
+                completed[unit] = true;
+                result.forEach(counts::add);
+                return action != null ? snapshot() : null;
+            }
+        } catch (CLOCException | RuntimeException ex) {
+            synchronized (this) {
+                if (!cancellation.isCancelled()) exceptions.add(wrap(ex));
+            }
+            return null;
+        }
+    }
+
+    private static CLOCException wrap(Exception ex) {
+        return ex instanceof CLOCException ? (CLOCException) ex : new CLOCException(ex);
+    }
+
+    /**
+     * Stop the execution, terminating any running processes.
+     * Units of work that have already been completed are retained.
+     */
+    public void cancel() {
+        cancellation.cancel();
+    }
+
+    /**
+     * @return whether the execution was cancelled, either explicitly or by its deadline.
+     */
+    public boolean isCancelled() {
+        return cancellation.isCancelled();
+    }
+
+    /**
+     * @return whether all units of work have either completed, failed, or been cancelled.
+     */
+    public boolean isDone() {
+        return remaining.getCount() == 0;
+    }
+
+    /**
+     * @return the total number of units of work.
+     */
+    public int getUnits() {
+        return units.size();
+    }
+
+    /**
+     * @return the number of units of work completed successfully so far.
+     */
+    public synchronized int getCompletedUnits() {
+        int result = 0;
+        for (boolean unit : completed) if (unit) result++;
+        return result;
+    }
+
+    /**
+     * Wait for the execution to finish.
+     *
+     * @return the results of all completed units of work.
+     * @throws InterruptedException if the current thread was interrupted while waiting.
+     */
+    @NotNull
+    public PartialReport await() throws InterruptedException {
+        remaining.await();
+        return snapshot();
+    }
+
+    /**
+     * Wait for the execution to finish, for at most the specified amount of time.
+     * The execution is not stopped if the wait times out.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit the unit of the timeout.
+     * @return the results of all units of work completed by the time the wait finished.
+     * @throws InterruptedException if the current thread was interrupted while waiting.
+     */
+    @NotNull
+    public PartialReport await(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        remaining.await(timeout, unit);
+        return snapshot();
+    }
+
+    /**
+     * @return the results of all units of work completed so far.
+     */
+    @NotNull
+    public synchronized PartialReport snapshot() {
+        FileCounts files = new FileCounts();
+        counts.forEach(files::add);
+        List<Path> unprocessed = new ArrayList<>();
+        for (int i = 0; i < units.size(); i++) {
+            if (!completed[i]) unprocessed.addAll(units.get(i));
+        }
+        Map<String, String> excluded = Collections.emptyMap();
+        if (!duplicates.isEmpty()) {
+            Set<String> paths = new HashSet<>();
+            files.forEach(file -> paths.add(file.getPath()));
+            excluded = Duplicates.find(duplicates, paths::contains);
+            Set<String> keys = excluded.keySet();
+            if (!keys.isEmpty()) files = files.filter(path -> !keys.contains(path));
+        }
+        return new PartialReport(new Report(null, files, excluded), unprocessed, new ArrayList<>(exceptions));
+    }
+}
@@ -0,0 +1,163 @@
+package ch.usi.si.seart.cloc;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes a single command execution, broken down into its phases.
+ * Durations that could not be measured on the current platform are reported as negative.
+ *
+ * @author Ozren Dabić
+ */
+public final class ExecutionEvent {
+
+    private final List<String> command;
+    private final boolean pooled;
+
+    long queueTime = 0;
+    long spawnTime = -1;
+    long wallTime = -1;
+    long cpuTime = -1;
+    long parseTime = -1;
+    long stdoutBytes = 0;
+    long stderrBytes = 0;
+    int resultSize = -1;
+    int exitCode = -1;
+    boolean timedOut = false;
+    CLOCException exception = null;
+
+    ExecutionEvent(List<String> command, boolean pooled) {
+        this.command = Collections.unmodifiableList(command);
+        this.pooled = pooled;
+    }
+
+    /**
+     * @return the executed command line.
+     */
+    @NotNull
+    public List<String> getCommand() {
+        return command;
+    }
+
+    /**
+     * @return whether the command was executed by a {@link WorkerPool} worker, rather than a new process.
+     */
+    public boolean isPooled() {
+        return pooled;
+    }
+
+    /**
+     * @return the time spent waiting for an executor thread, a pool worker or admission by a scheduler.
+     */
+    @NotNull
+    public Duration getQueueTime() {
+        return Duration.ofNanos(queueTime);
+    }
+
+    /**
+     * @return the time needed to start the process, which is zero if an idle pool worker was reused.
+     */
+    @NotNull
+    public Duration getSpawnTime() {
+        return Duration.ofNanos(spawnTime);
+    }
+
+    /**
+     * @return the time elapsed between the start and the end of the command execution.
+     */
+    @NotNull
+    public Duration getWallTime() {
+        return Duration.ofNanos(wallTime);
+    }
+
+    /**
+     * @return the processor time consumed by the command.
+     */
+    @NotNull
+    public Duration getCpuTime() {
+        return Duration.ofNanos(cpuTime);
+    }
+
+    /**
+     * Parsing overlaps with the execution of the command, as the output is parsed while it is being produced.
+     * Where supported, the processor time of the parsing thread is therefore reported instead of the elapsed time.
+     *
+     * @return the time spent parsing the command output.
+     */
+    @NotNull
+    public Duration getParseTime() {
+        return Duration.ofNanos(parseTime);
+    }
+
+    /**
+     * @return the number of bytes written by the command to its standard output.
+     */
+    public long getStdoutBytes() {
+        return stdoutBytes;
+    }
+
+    /**
+     * @return the number of bytes written by the command to its standard error.
+     */
+    public long getStderrBytes() {
+        return stderrBytes;
+    }
+
+    /**
+     * @return the number of entries (files or languages) in the result, or -1 if the execution failed.
+     */
+    public int getResultSize() {
+        return resultSize;
+    }
+
+    /**
+     * @return the exit code of the command, or -1 if it did not exit normally.
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return whether the command was stopped for exceeding its timeout.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return whether the execution completed successfully.
+     */
+    public boolean isSuccessful() {
+        return exception == null;
+    }
+
+    /**
+     * @return the exception that caused the execution to fail, or {@code null} if it was successful.
+     */
+    @Nullable
+    public CLOCException getException() {
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionEvent{"
+                + "command=" + command
+                + ", pooled=" + pooled
+                + ", queueTime=" + getQueueTime()
+                + ", spawnTime=" + getSpawnTime()
+                + ", wallTime=" + getWallTime()
+                + ", cpuTime=" + getCpuTime()
+                + ", parseTime=" + getParseTime()
+                + ", stdoutBytes=" + stdoutBytes
+                + ", stderrBytes=" + stderrBytes
+                + ", resultSize=" + resultSize
+                + ", exitCode=" + exitCode
+                + ", timedOut=" + timedOut
+                + '}';
+    }
+}
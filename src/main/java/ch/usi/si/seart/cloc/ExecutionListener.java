@@ -0,0 +1,28 @@
+package ch.usi.si.seart.cloc;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives an event describing each command execution once it has finished, whether successfully or not.
+ * Listeners are registered globally through {@link CLOC#setExecutionListener(ExecutionListener)},
+ * and are notified on the thread that performed the execution.
+ * Implementations must therefore be thread-safe, and should return promptly.
+ *
+ * @author Ozren Dabić
+ */
+@FunctionalInterface
+public interface ExecutionListener {
+
+    /**
+     * Listener that ignores all events. Used by default.
+     */
+    ExecutionListener NOOP = event -> { };
+
+    /**
+     * Invoked after each command execution.
+     * Exceptions thrown by this method are ignored.
+     *
+     * @param event the details of the execution.
+     */
+    void executed(@NotNull ExecutionEvent event);
+}
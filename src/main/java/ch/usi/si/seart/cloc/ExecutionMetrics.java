@@ -0,0 +1,265 @@
+package ch.usi.si.seart.cloc;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates command execution events in memory, keeping counters and histograms of their phase durations.
+ * Intended as a starting point for inspecting performance, or for periodically exporting to a monitoring system:
+ * <pre>{@code
+ * ExecutionMetrics metrics = new ExecutionMetrics();
+ * CLOC.setExecutionListener(metrics);
+ * // ...
+ * long p99 = metrics.getWallTime().getPercentile(0.99);
+ * }</pre>
+ * All durations are recorded in nanoseconds. Durations that could not be measured are not recorded.
+ *
+ * @author Ozren Dabić
+ */
+public final class ExecutionMetrics implements ExecutionListener {
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder stdoutBytes = new LongAdder();
+    private final LongAdder stderrBytes = new LongAdder();
+
+    private final Histogram queueTime = new Histogram();
+    private final Histogram spawnTime = new Histogram();
+    private final Histogram wallTime = new Histogram();
+    private final Histogram cpuTime = new Histogram();
+    private final Histogram parseTime = new Histogram();
+    private final Histogram resultSize = new Histogram();
+
+    @Override
+    public void executed(@NotNull ExecutionEvent event) {
+        executions.increment();
+        if (!event.isSuccessful()) failures.increment();
+        if (event.isTimedOut()) timeouts.increment();
+        stdoutBytes.add(event.stdoutBytes);
+        stderrBytes.add(event.stderrBytes);
+        queueTime.record(event.queueTime);
+        spawnTime.record(event.spawnTime);
+        wallTime.record(event.wallTime);
+        cpuTime.record(event.cpuTime);
+        parseTime.record(event.parseTime);
+        resultSize.record(event.resultSize);
+    }
+
+    /**
+     * @return the number of recorded executions.
+     */
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    /**
+     * @return the number of recorded executions that failed, including those that timed out.
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * @return the number of recorded executions that timed out.
+     */
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * @return the total number of bytes written by all recorded executions to their standard output.
+     */
+    public long getStdoutBytes() {
+        return stdoutBytes.sum();
+    }
+
+    /**
+     * @return the total number of bytes written by all recorded executions to their standard error.
+     */
+    public long getStderrBytes() {
+        return stderrBytes.sum();
+    }
+
+    /**
+     * @return the histogram of times spent waiting for an executor thread or a pool worker.
+     * @see ExecutionEvent#getQueueTime()
+     */
+    @NotNull
+    public Histogram getQueueTime() {
+        return queueTime;
+    }
+
+    /**
+     * @return the histogram of process start times.
+     * @see ExecutionEvent#getSpawnTime()
+     */
+    @NotNull
+    public Histogram getSpawnTime() {
+        return spawnTime;
+    }
+
+    /**
+     * @return the histogram of execution times.
+     * @see ExecutionEvent#getWallTime()
+     */
+    @NotNull
+    public Histogram getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * @return the histogram of processor times consumed by the command.
+     * @see ExecutionEvent#getCpuTime()
+     */
+    @NotNull
+    public Histogram getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * @return the histogram of output parsing times.
+     * @see ExecutionEvent#getParseTime()
+     */
+    @NotNull
+    public Histogram getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * @return the histogram of the number of entries in each result.
+     * @see ExecutionEvent#getResultSize()
+     */
+    @NotNull
+    public Histogram getResultSize() {
+        return resultSize;
+    }
+
+    /**
+     * Discard all recorded events.
+     */
+    public void reset() {
+        executions.reset();
+        failures.reset();
+        timeouts.reset();
+        stdoutBytes.reset();
+        stderrBytes.reset();
+        queueTime.reset();
+        spawnTime.reset();
+        wallTime.reset();
+        cpuTime.reset();
+        parseTime.reset();
+        resultSize.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionMetrics{"
+                + "executions=" + getExecutions()
+                + ", failures=" + getFailures()
+                + ", timeouts=" + getTimeouts()
+                + ", wallTime=" + wallTime
+                + '}';
+    }
+
+    /**
+     * A histogram of non-negative values, using buckets with exponentially increasing bounds.
+     * Each bucket spans a power of two, so percentiles are accurate to within a factor of two.
+     */
+    public static final class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        private Histogram() {
+        }
+
+        private void record(long value) {
+            if (value < 0) return;
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value) - (value == 0 ? 0 : 1));
+            count.increment();
+            sum.add(value);
+            min.accumulateAndGet(value, Math::min);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        private void reset() {
+            for (int i = 0; i < buckets.length(); i++) buckets.set(i, 0);
+            count.reset();
+            sum.reset();
+            min.set(Long.MAX_VALUE);
+            max.set(Long.MIN_VALUE);
+        }
+
+        /**
+         * @return the number of recorded values.
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return the smallest recorded value, or 0 if no values were recorded.
+         */
+        public long getMin() {
+            return getCount() > 0 ? min.get() : 0;
+        }
+
+        /**
+         * @return the largest recorded value, or 0 if no values were recorded.
+         */
+        public long getMax() {
+            return getCount() > 0 ? max.get() : 0;
+        }
+
+        /**
+         * @return the arithmetic mean of the recorded values, or 0 if no values were recorded.
+         */
+        public double getMean() {
+            long total = getCount();
+            return total > 0 ? (double) sum.sum() / total : 0;
+        }
+
+        /**
+         * Estimate the value below which the specified fraction of the recorded values falls.
+         *
+         * @param quantile the fraction of values, between 0 and 1.
+         * @return the upper bound of the bucket containing the percentile, or 0 if no values were recorded.
+         * @throws IllegalArgumentException if the quantile is not between 0 and 1.
+         */
+        public long getPercentile(double quantile) {
+            if (quantile < 0 || quantile > 1) throw new IllegalArgumentException("Quantile must be between 0 and 1!");
+            long total = 0;
+            for (int i = 0; i < buckets.length(); i++) total += buckets.get(i);
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    long bound = i >= Long.SIZE - 2 ? Long.MAX_VALUE : (2L << i) - 1;
+                    return Math.min(Math.max(bound, getMin()), getMax());
+                }
+            }
+            return getMax();
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{"
+                    + "count=" + getCount()
+                    + ", min=" + getMin()
+                    + ", mean=" + getMean()
+                    + ", p50=" + getPercentile(0.5)
+                    + ", p99=" + getPercentile(0.99)
+                    + ", max=" + getMax()
+                    + '}';
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package ch.usi.si.seart.cloc;
+
+import java.util.Objects;
+
+/**
+ * The line counts of a single file, as reported by {@code cloc}.
+ *
+ * @author Ozren Dabić
+ */
+public final class FileCount {
+
+    private final String path;
+    private final int language;
+    private final int blank;
+    private final int comment;
+    private final int code;
+
+    FileCount(String path, int language, int blank, int comment, int code) {
+        this.path = path;
+        this.language = language;
+        this.blank = blank;
+        this.comment = comment;
+        this.code = code;
+    }
+
+    /**
+     * @return the path of the file, as reported by the command.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the name of the language the file was classified as.
+     */
+    public String getLanguage() {
+        return Languages.name(language);
+    }
+
+    /**
+     * @return the number of blank lines in the file.
+     */
+    public int getBlank() {
+        return blank;
+    }
+
+    /**
+     * @return the number of comment lines in the file.
+     */
+    public int getComment() {
+        return comment;
+    }
+
+    /**
+     * @return the number of code lines in the file.
+     */
+    public int getCode() {
+        return code;
+    }
+
+    int getLanguageId() {
+        return language;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        FileCount that = (FileCount) obj;
+        return language == that.language
+                && blank == that.blank
+                && comment == that.comment
+                && code == that.code
+                && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(path, language, blank, comment, code);
+    }
+
+    @Override
+    public String toString() {
+        return "FileCount{"
+                + "path='" + path + '\''
+                + ", language='" + getLanguage() + '\''
+                + ", blank=" + blank
+                + ", comment=" + comment
+                + ", code=" + code
+                + '}';
+    }
+}
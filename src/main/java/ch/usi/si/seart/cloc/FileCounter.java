@@ -0,0 +1,19 @@
+package ch.usi.si.seart.cloc;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Counts an explicit list of files, reporting results by file.
+ * Implementations may delegate to one another, e.g. to serve some of the files from a cache.
+ */
+@FunctionalInterface
+interface FileCounter {
+
+    /**
+     * @param files the absolute paths of the files to count.
+     * @return the counts of each file that was recognized as source code.
+     * @throws CLOCException if an error occurs while counting the files.
+     */
+    FileCounts count(List<Path> files) throws CLOCException;
+}
@@ -0,0 +1,155 @@
+package ch.usi.si.seart.cloc;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Line counts reported for each individual file.
+ * Rows are stored column-wise in primitive arrays,
+ * with languages referenced through an interned language table.
+ * {@link FileCount} instances are only created on access.
+ *
+ * @author Ozren Dabić
+ */
+public final class FileCounts implements Iterable<FileCount> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] paths = new String[INITIAL_CAPACITY];
+    private int[] languages = new int[INITIAL_CAPACITY];
+    private int[] blank = new int[INITIAL_CAPACITY];
+    private int[] comment = new int[INITIAL_CAPACITY];
+    private int[] code = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    FileCounts() {
+    }
+
+    void add(FileCount count) {
+        add(count.getPath(), count.getLanguageId(), count.getBlank(), count.getComment(), count.getCode());
+    }
+
+    void add(String path, int language, int blank, int comment, int code) {
+        if (size == paths.length) {
+            int capacity = size * 2;
+            this.paths = Arrays.copyOf(this.paths, capacity);
+            this.languages = Arrays.copyOf(this.languages, capacity);
+            this.blank = Arrays.copyOf(this.blank, capacity);
+            this.comment = Arrays.copyOf(this.comment, capacity);
+            this.code = Arrays.copyOf(this.code, capacity);
+        }
+        this.paths[size] = path;
+        this.languages[size] = language;
+        this.blank[size] = blank;
+        this.comment[size] = comment;
+        this.code[size] = code;
+        size++;
+    }
+
+    FileCounts filter(Predicate<String> predicate) {
+        FileCounts result = new FileCounts();
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(paths[i])) result.add(paths[i], languages[i], blank[i], comment[i], code[i]);
+        }
+        return result;
+    }
+
+    String path(int index) {
+        return paths[index];
+    }
+
+    int language(int index) {
+        return languages[index];
+    }
+
+    int blank(int index) {
+        return blank[index];
+    }
+
+    int comment(int index) {
+        return comment[index];
+    }
+
+    int code(int index) {
+        return code[index];
+    }
+
+    /**
+     * @return the number of counted files.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if no files were counted.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Obtain the counts of a single file.
+     *
+     * @param index the index of the file, in order of appearance in the command output.
+     * @return the counts of the file at the specified index.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public FileCount get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return new FileCount(paths[index], languages[index], blank[index], comment[index], code[index]);
+    }
+
+    /**
+     * Aggregate the file counts by language.
+     *
+     * @return the line counts of all files, grouped by language.
+     */
+    public LanguageCounts getLanguageCounts() {
+        LanguageCounts counts = new LanguageCounts();
+        for (int i = 0; i < size; i++) {
+            counts.add(languages[i], 1, blank[i], comment[i], code[i]);
+        }
+        return counts;
+    }
+
+    /**
+     * @return a sequential stream over the counts of all files.
+     */
+    public Stream<FileCount> stream() {
+        Spliterator<FileCount> spliterator = Spliterators.spliterator(
+                iterator(), size, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE
+        );
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    @Override
+    public Iterator<FileCount> iterator() {
+        return new Iterator<FileCount>() {
+
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public FileCount next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return get(index++);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "FileCounts{size=" + size + '}';
+    }
+}
@@ -0,0 +1,166 @@
+package ch.usi.si.seart.cloc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The exclusion rules of a single {@code .gitignore} file, chained to those of the files in its parent directories.
+ * Patterns follow the Git syntax: rules in deeper files take precedence over those in shallower ones,
+ * and within a file, later rules take precedence over earlier ones.
+ */
+final class Gitignore {
+
+    private final Gitignore parent;
+    private final Path base;
+    private final List<Rule> rules;
+
+    private Gitignore(Gitignore parent, Path base, List<Rule> rules) {
+        this.parent = parent;
+        this.base = base;
+        this.rules = rules;
+    }
+
+    /**
+     * Collect the rules applicable to the specified directory from the repository that encloses it,
+     * including those in {@code .git/info/exclude} and in the {@code .gitignore} files of all its ancestors.
+     * Rules in the {@code .gitignore} file of the directory itself are not included.
+     *
+     * @param directory an absolute, normalized directory path.
+     * @return the applicable rules, or {@code null} if there are none.
+     */
+    static Gitignore enclosing(Path directory) {
+        Path repository = directory;
+        while (repository != null && !Files.exists(repository.resolve(".git"))) repository = repository.getParent();
+        if (repository == null) return null;
+        Gitignore result = read(null, repository, repository.resolve(".git").resolve("info").resolve("exclude"));
+        Path current = repository;
+        while (!current.equals(directory)) {
+            result = read(result, current);
+            current = current.resolve(directory.getName(current.getNameCount()));
+        }
+        return result;
+    }
+
+    /**
+     * Extend the rules with those of the {@code .gitignore} file in the specified directory, if it exists.
+     *
+     * @param parent the rules of the parent directories, may be {@code null}.
+     * @param directory the directory in which to look for the file.
+     * @return the extended rules, or the rules of the parent directories if the file does not exist.
+     */
+    static Gitignore read(Gitignore parent, Path directory) {
+        return read(parent, directory, directory.resolve(".gitignore"));
+    }
+
+    private static Gitignore read(Gitignore parent, Path base, Path file) {
+        if (!Files.isRegularFile(file)) return parent;
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            return parent;
+        }
+        List<Rule> rules = new ArrayList<>();
+        for (String line : lines) {
+            Rule rule = Rule.parse(line);
+            if (rule != null) rules.add(rule);
+        }
+        return rules.isEmpty() ? parent : new Gitignore(parent, base, rules);
+    }
+
+    /**
+     * @param path the absolute, normalized path to test.
+     * @param directory whether the path denotes a directory.
+     * @return whether the path is excluded by the rules.
+     */
+    boolean isIgnored(Path path, boolean directory) {
+        for (Gitignore current = this; current != null; current = current.parent) {
+            if (!path.startsWith(current.base)) continue;
+            String separator = path.getFileSystem().getSeparator();
+            String relative = current.base.relativize(path).toString().replace(separator, "/");
+            for (int i = current.rules.size() - 1; i >= 0; i--) {
+                Rule rule = current.rules.get(i);
+                if (rule.matches(relative, directory)) return !rule.negated;
+            }
+        }
+        return false;
+    }
+
+    private static final class Rule {
+
+        private final Pattern pattern;
+        private final boolean negated;
+        private final boolean directoryOnly;
+
+        private Rule(Pattern pattern, boolean negated, boolean directoryOnly) {
+            this.pattern = pattern;
+            this.negated = negated;
+            this.directoryOnly = directoryOnly;
+        }
+
+        private boolean matches(String path, boolean directory) {
+            return (directory || !directoryOnly) && pattern.matcher(path).matches();
+        }
+
+        private static Rule parse(String line) {
+            int end = line.length();
+            while (end > 0 && line.charAt(end - 1) == ' ' && (end < 2 || line.charAt(end - 2) != '\\')) end--;
+            String glob = line.substring(0, end);
+            if (glob.isEmpty() || glob.startsWith("#")) return null;
+            boolean negated = glob.startsWith("!");
+            if (negated) glob = glob.substring(1);
+            boolean directoryOnly = glob.endsWith("/");
+            if (directoryOnly) glob = glob.substring(0, glob.length() - 1);
+            if (glob.isEmpty()) return null;
+            if (glob.startsWith("/")) glob = glob.substring(1);
+            else if (!glob.contains("/")) glob = "**/" + glob;
+            return new Rule(Pattern.compile(translate(glob)), negated, directoryOnly);
+        }
+
+        private static String translate(String glob) {
+            StringBuilder regex = new StringBuilder();
+            int length = glob.length();
+            int i = 0;
+            while (i < length) {
+                char c = glob.charAt(i);
+                if (glob.startsWith("**", i) && (i == 0 || glob.charAt(i - 1) == '/')) {
+                    if (i + 2 == length) {
+                        regex.append(".*");
+                        i += 2;
+                        continue;
+                    } else if (glob.charAt(i + 2) == '/') {
+                        regex.append("(?:.*/)?");
+                        i += 3;
+                        continue;
+                    }
+                }
+                if (c == '*') {
+                    regex.append("[^/]*");
+                    while (i + 1 < length && glob.charAt(i + 1) == '*') i++;
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                } else if (c == '[' && glob.indexOf(']', i + 2) > 0) {
+                    int close = glob.indexOf(']', i + 2);
+                    String range = glob.substring(i + 1, close);
+                    boolean inverted = range.startsWith("!") || range.startsWith("^");
+                    if (inverted) range = range.substring(1);
+                    range = range.replace("\\", "\\\\").replace("[", "\\[").replace("&", "\\&");
+                    regex.append(inverted ? "[^/" : "[").append(range).append(']');
+                    i = close;
+                } else if (c == '\\' && i + 1 < length) {
+                    i++;
+                    regex.append(Pattern.quote(String.valueOf(glob.charAt(i))));
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(c)));
+                }
+                i++;
+            }
+            return regex.toString();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.codehaus.plexus.util.FileUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the physical lines of source code at each commit of a local Git repository.
+ * <p>
+ * Rather than checking out every commit and counting the whole worktree,
+ * the tree of each commit is listed with {@code git ls-tree},
+ * and every distinct file (blob contents and file name) is counted exactly once,
+ * no matter how many commits it appears in.
+ * Directories and extensions excluded from the command are pruned from each tree before any of its files are read.
+ * Commits are processed in windows of at most the configured {@linkplain CLOC.Builder#batchSize(int) batch size},
+ * with one command execution counting all files first introduced within a window.
+ * Unless the uniqueness check is skipped, files sharing a blob are then excluded from each commit,
+ * retaining the last of them in path order among those recognized as source code, just as {@code cloc} would.
+ * Only the local {@code git} executable is used.
+ *
+ * @author Ozren Dabić
+ */
+public final class History {
+
+    private final File repository;
+    private final boolean unique;
+    private final int window;
+    private final SourceFilter filter;
+    private final FileCounter counter;
+
+    private final Map<String, Integer> keys = new HashMap<>();
+    private int[] languages = new int[0];
+    private int[] blank = new int[0];
+    private int[] comment = new int[0];
+    private int[] code = new int[0];
+
+    History(Path repository, boolean unique, int window, SourceFilter filter, FileCounter counter) {
+        this.repository = repository.toFile();
+        this.unique = unique;
+        this.window = window;
+        this.filter = filter;
+        this.counter = counter;
+    }
+
+    /**
+     * Count the physical lines of source code at each of the specified commits, reporting results by language.
+     *
+     * @param revisions the commits to count, in any form accepted by {@code git rev-list} (e.g. {@code v1.0..HEAD}).
+     * @return A JSON object representation of the counts at each commit, keyed by commit hash,
+     * from the oldest to the most recent commit.
+     * @throws NullPointerException if the revisions are {@code null}.
+     * @throws IllegalArgumentException if the revisions start with a dash.
+     * @throws CLOCException if an error occurs while executing {@code git} or the command.
+     */
+    public Map<String, ObjectNode> linesByLanguage(@NotNull String revisions) throws CLOCException {
+        Map<String, ObjectNode> results = new LinkedHashMap<>();
+        countLinesByLanguage(revisions).forEach((commit, counts) ->
+                results.put(commit, OutputWriters.linesByLanguage(null, counts))
+        );
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Count the physical lines of source code at each of the specified commits, reporting typed results by language.
+     *
+     * @param revisions the commits to count, in any form accepted by {@code git rev-list} (e.g. {@code v1.0..HEAD}).
+     * @return the line counts of each language at each commit, keyed by commit hash,
+     * from the oldest to the most recent commit.
+     * @throws NullPointerException if the revisions are {@code null}.
+     * @throws IllegalArgumentException if the revisions start with a dash.
+     * @throws CLOCException if an error occurs while executing {@code git} or the command.
+     */
+    public Map<String, LanguageCounts> countLinesByLanguage(@NotNull String revisions) throws CLOCException {
+        Objects.requireNonNull(revisions, "Revisions must not be null!");
+        if (revisions.startsWith("-")) throw new IllegalArgumentException("Invalid revisions: " + revisions);
+        String output = new String(git("rev-list", "--reverse", revisions, "--"), StandardCharsets.UTF_8);
+        List<String> commits = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            if (!line.isEmpty()) commits.add(line.trim());
+        }
+        Map<String, LanguageCounts> results = new LinkedHashMap<>();
+        for (int start = 0; start < commits.size(); start += window) {
+            List<String> group = commits.subList(start, Math.min(start + window, commits.size()));
+            Map<String, Tree> trees = new LinkedHashMap<>();
+            Map<Integer, Blob> blobs = new LinkedHashMap<>();
+            for (String commit : group) {
+                trees.put(commit, list(commit, blobs));
+            }
+            count(blobs);
+            trees.forEach((commit, tree) -> results.put(commit, sum(tree)));
+        }
+        return Collections.unmodifiableMap(results);
+    }
+
+    /*
+     * Lists the files of a commit, registering those that were not seen before.
+     * Symbolic links and submodules are skipped, as they are not regular files in a worktree,
+     * and so are the files pruned by the filter.
+     * If the uniqueness check is enabled, files sharing the same blob are grouped,
+     * so that duplicates can be excluded once it is known which of the files are recognized as source code.
+     */
+    private Tree list(String commit, Map<Integer, Blob> blobs) throws CLOCException {
+        byte[] output = git("ls-tree", "-r", "-z", "--full-tree", commit);
+        Map<String, List<String>> contents = new HashMap<>();
+        Map<String, Integer> positions = new HashMap<>();
+        int[] ids = new int[16];
+        int size = 0;
+        int offset = 0;
+        while (offset < output.length) {
+            int end = offset;
+            while (end < output.length && output[end] != 0) end++;
+            String entry = new String(output, offset, end - offset, StandardCharsets.UTF_8);
+            offset = end + 1;
+            int tab = entry.indexOf('\t');
+            if (tab < 0) continue;
+            String[] meta = entry.substring(0, tab).split(" ");
+            if (meta.length != 3 || !"blob".equals(meta[1]) || meta[0].startsWith("120")) continue;
+            String sha = meta[2];
+            String path = entry.substring(tab + 1);
+            if (!SourceWalker.isCollected(path, filter)) continue;
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            String key = sha + '\0' + name;
+            Integer id = keys.get(key);
+            if (id == null) {
+                id = keys.size();
+                keys.put(key, id);
+                blobs.put(id, new Blob(sha, name));
+            }
+            if (unique) {
+                contents.computeIfAbsent(sha, ignored -> new ArrayList<>()).add(path);
+                positions.put(path, size);
+            }
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+        List<List<String>> groups = new ArrayList<>();
+        for (List<String> group : contents.values()) {
+            if (group.size() < 2) continue;
+            Collections.sort(group);
+            groups.add(group);
+        }
+        positions.keySet().retainAll(groups.stream().flatMap(List::stream).collect(Collectors.toSet()));
+        return new Tree(Arrays.copyOf(ids, size), groups, positions);
+    }
+
+    private void count(Map<Integer, Blob> blobs) throws CLOCException {
+        int capacity = keys.size();
+        if (capacity > languages.length) {
+            int length = languages.length;
+            languages = Arrays.copyOf(languages, capacity);
+            Arrays.fill(languages, length, capacity, -1);
+            blank = Arrays.copyOf(blank, capacity);
+            comment = Arrays.copyOf(comment, capacity);
+            code = Arrays.copyOf(code, capacity);
+        }
+        if (blobs.isEmpty()) return;
+        Path scratch;
+        try {
+            scratch = Files.createTempDirectory("cloc-history");
+        } catch (IOException ex) {
+            throw new CLOCException(ex);
+        }
+        try {
+            Map<String, Integer> paths = extract(blobs, scratch);
+            List<Path> files = new ArrayList<>(paths.size());
+            paths.keySet().forEach(path -> files.add(Paths.get(path)));
+            FileCounts counts = counter.count(files);
+            for (FileCount count : counts) {
+                Integer id = paths.get(count.getPath());
+                if (id == null) continue;
+                languages[id] = count.getLanguageId();
+                blank[id] = count.getBlank();
+                comment[id] = count.getComment();
+                code[id] = count.getCode();
+            }
+        } finally {
+            try {
+                FileUtils.deleteDirectory(scratch.toFile());
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /*
+     * Writes the contents of each blob to the scratch directory, using a separate subdirectory for each blob,
+     * so that the original file names (which determine the language) can be preserved.
+     */
+    private Map<String, Integer> extract(Map<Integer, Blob> blobs, Path scratch) throws CLOCException {
+        Map<String, Integer> paths = new HashMap<>();
+        File err = errors();
+        try {
+            Process process = start(err, "cat-file", "--batch");
+            try (
+                OutputStream input = process.getOutputStream();
+                InputStream output = new BufferedInputStream(process.getInputStream())
+            ) {
+                for (Map.Entry<Integer, Blob> entry : blobs.entrySet()) {
+                    Blob blob = entry.getValue();
+                    input.write((blob.sha + "\n").getBytes(StandardCharsets.US_ASCII));
+                    input.flush();
+                    String[] header = readLine(output).split(" ");
+                    if (header.length != 3) throw new CLOCException("Unable to read blob: " + blob.sha);
+                    long length = Long.parseLong(header[2]);
+                    Path directory = Files.createDirectory(scratch.resolve(String.valueOf(entry.getKey())));
+                    Path file = directory.resolve(blob.name);
+                    try (OutputStream stream = Files.newOutputStream(file)) {
+                        copy(output, stream, length);
+                    }
+                    if (output.read() != '\n') throw new CLOCException("Unexpected output of: git cat-file");
+                    paths.put(ListFiles.normalize(file), entry.getKey());
+                }
+            } catch (IOException | RuntimeException ex) {
+                process.destroy();
+                throw new CLOCException("Unable to extract blobs: " + read(err), ex);
+            }
+            await(process, err);
+            return paths;
+        } finally {
+            FileUtils.fileDelete(err.getPath());
+        }
+    }
+
+    /*
+     * Sums the counts of the files in a tree, excluding those with the same contents as another recognized file.
+     */
+    private LanguageCounts sum(Tree tree) {
+        boolean[] excluded = new boolean[tree.ids.length];
+        Duplicates.find(tree.groups, path -> languages[tree.ids[tree.positions.get(path)]] >= 0)
+                .keySet()
+                .forEach(path -> excluded[tree.positions.get(path)] = true);
+        LanguageCounts counts = new LanguageCounts();
+        for (int i = 0; i < tree.ids.length; i++) {
+            int id = tree.ids[i];
+            if (excluded[i] || languages[id] < 0) continue;
+            counts.add(languages[id], 1, blank[id], comment[id], code[id]);
+        }
+        return counts;
+    }
+
+    private byte[] git(String... arguments) throws CLOCException {
+        File err = errors();
+        try {
+            Process process = start(err, arguments);
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            try (InputStream output = process.getInputStream()) {
+                process.getOutputStream().close();
+                copy(output, result, Long.MAX_VALUE);
+            } catch (IOException ex) {
+                process.destroy();
+                throw new CLOCException(ex);
+            }
+            await(process, err);
+            return result.toByteArray();
+        } finally {
+            FileUtils.fileDelete(err.getPath());
+        }
+    }
+
+    private Process start(File err, String... arguments) throws CLOCException {
+        String[] command = new String[arguments.length + 1];
+        command[0] = "git";
+        System.arraycopy(arguments, 0, command, 1, arguments.length);
+        try {
+            return Processes.start(command, repository, err);
+        } catch (IOException ex) {
+            throw new CLOCException(ex.getMessage(), ex);
+        }
+    }
+
+    private static void await(Process process, File err) throws CLOCException {
+        try {
+            int code = Processes.waitFor(process);
+            if (code != 0) throw new CLOCException(read(err));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new CLOCException(ex);
+        }
+    }
+
+    private static File errors() throws CLOCException {
+        try {
+            return File.createTempFile("git", ".err");
+        } catch (IOException ex) {
+            throw new CLOCException(ex);
+        }
+    }
+
+    private static String read(File err) {
+        try {
+            return FileUtils.fileRead(err);
+        } catch (IOException ex) {
+            return "";
+        }
+    }
+
+    private static String readLine(InputStream stream) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int next = stream.read();
+        while (next != '\n') {
+            if (next == -1) throw new EOFException();
+            line.write(next);
+            next = stream.read();
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void copy(InputStream source, OutputStream target, long length) throws IOException {
+        byte[] buffer = new byte[8192];
+        long remaining = length;
+        while (remaining > 0) {
+            int read = source.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                if (length == Long.MAX_VALUE) return;
+                throw new EOFException();
+            }
+            target.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    private static final class Tree {
+
+        private final int[] ids;
+        private final List<List<String>> groups;
+        private final Map<String, Integer> positions;
+
+        private Tree(int[] ids, List<List<String>> groups, Map<String, Integer> positions) {
+            this.ids = ids;
+            this.groups = groups;
+            this.positions = positions;
+        }
+    }
+
+    private static final class Blob {
+
+        private final String sha;
+        private final String name;
+
+        private Blob(String sha, String name) {
+            this.sha = sha;
+            this.name = name;
+        }
+    }
+}
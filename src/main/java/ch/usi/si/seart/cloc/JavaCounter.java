@@ -0,0 +1,357 @@
+package ch.usi.si.seart.cloc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Counts files of the most common languages within the JVM, delegating all other files to another counter.
+ * <p>
+ * Counting follows the same rules as {@code cloc}: blank lines are removed first,
+ * followed by comments, with every line left behind counted as code.
+ * The leading {@code #!} line of a Python script is counted as code, just as with {@code cloc}.
+ * Files that can not be counted with certainty, such as those containing line continuations,
+ * binary data, comment markers whose order of removal affects the outcome,
+ * block comment markers on the same line as string literals,
+ * or contents that {@code cloc} may take for another language (such as Smalltalk in {@code .cs} files),
+ * are always delegated.
+ */
+final class JavaCounter implements FileCounter {
+
+    /*
+     * Number of leading bytes inspected by Perl to tell text files apart from binary ones.
+     */
+    private static final int HEAD = 512;
+
+    /*
+     * Files at least this large are memory-mapped rather than read onto the heap.
+     */
+    private static final long MAP_THRESHOLD = 1L << 20;
+
+    private static final int[] DELEGATED = new int[0];
+    private static final int[] EXCLUDED = new int[0];
+
+    private static final Map<String, Syntax> EXTENSIONS;
+
+    static {
+        Map<String, Syntax> extensions = new HashMap<>();
+        extensions.put("c", new Syntax("C", false, false));
+        extensions.put("h", new Syntax("C/C++ Header", false, false));
+        extensions.put("cc", new Syntax("C++", false, false));
+        extensions.put("cpp", new Syntax("C++", false, false));
+        extensions.put("cxx", new Syntax("C++", false, false));
+        extensions.put("cs", new Syntax("C#", false, false));
+        extensions.put("go", new Syntax("Go", false, false));
+        extensions.put("java", new Syntax("Java", false, true));
+        extensions.put("js", new Syntax("JavaScript", false, false));
+        extensions.put("kt", new Syntax("Kotlin", false, false));
+        extensions.put("scala", new Syntax("Scala", false, false));
+        extensions.put("ts", new Syntax("TypeScript", false, false));
+        extensions.put("py", new Syntax("Python", true, false));
+        EXTENSIONS = Collections.unmodifiableMap(extensions);
+    }
+
+    private final FileCounter fallback;
+    private final boolean docstringAsCode;
+    private final long maxFileSize;
+    private final Predicate<String> languages;
+
+    /**
+     * @param fallback the counter used for files that can not be counted within the JVM.
+     * @param docstringAsCode whether Python docstrings are counted as code.
+     * @param maxFileSize the size in bytes above which files are delegated.
+     */
+    JavaCounter(FileCounter fallback, boolean docstringAsCode, long maxFileSize) {
+        this(fallback, docstringAsCode, maxFileSize, language -> true);
+    }
+
+    /**
+     * @param fallback the counter used for files that can not be counted within the JVM.
+     * @param docstringAsCode whether Python docstrings are counted as code.
+     * @param maxFileSize the size in bytes above which files are delegated.
+     * @param languages the predicate accepting the languages that are counted, all other files are skipped.
+     */
+    JavaCounter(FileCounter fallback, boolean docstringAsCode, long maxFileSize, Predicate<String> languages) {
+        this.fallback = fallback;
+        this.docstringAsCode = docstringAsCode;
+        this.maxFileSize = maxFileSize;
+        this.languages = languages;
+    }
+
+    @Override
+    public FileCounts count(List<Path> files) throws CLOCException {
+        int[][] results = files.parallelStream().map(this::count).toArray(int[][]::new);
+        FileCounts counts = new FileCounts();
+        List<Path> delegated = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            int[] result = results[i];
+            if (result == DELEGATED) {
+                delegated.add(files.get(i));
+            } else if (result != EXCLUDED) {
+                counts.add(ListFiles.normalize(files.get(i)), result[0], result[1], result[2], result[3]);
+            }
+        }
+        if (!delegated.isEmpty()) fallback.count(delegated).forEach(counts::add);
+        return counts;
+    }
+
+    private int[] count(Path file) {
+        Syntax syntax = syntax(file);
+        if (syntax == null) return DELEGATED;
+        if (!languages.test(syntax.language)) return syntax.isAmbiguous() ? DELEGATED : EXCLUDED;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0 || size > maxFileSize || size > Integer.MAX_VALUE) return DELEGATED;
+            ByteBuffer buffer;
+            if (size >= MAP_THRESHOLD) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) break;
+                }
+                buffer.flip();
+            }
+            int[] result = syntax.count(buffer, docstringAsCode);
+            return result != null ? result : DELEGATED;
+        } catch (IOException ex) {
+            return DELEGATED;
+        }
+    }
+
+    private static Syntax syntax(Path file) {
+        Path fileName = file.getFileName();
+        if (fileName == null) return null;
+        String name = fileName.toString();
+        int dot = name.lastIndexOf('.');
+        if (dot <= 0) return null;
+        String extension = name.substring(dot + 1);
+        if (!extension.equals(extension.toLowerCase(Locale.ROOT))) return null;
+        return EXTENSIONS.get(extension);
+    }
+
+    private static final class Syntax {
+
+        private final String language;
+        private final boolean hash;
+        private final boolean textBlocks;
+
+        /**
+         * @param language the name of the language.
+         * @param hash whether line comments start with {@code #} rather than {@code //}.
+         * @param textBlocks whether triple-quoted strings are checked for comment markers by {@code cloc}.
+         */
+        private Syntax(String language, boolean hash, boolean textBlocks) {
+            this.language = language;
+            this.hash = hash;
+            this.textBlocks = textBlocks;
+        }
+
+        /**
+         * @return whether {@code cloc} may classify files with this extension as another language,
+         * depending on their contents.
+         */
+        private boolean isAmbiguous() {
+            return language.equals("C#") || language.equals("TypeScript");
+        }
+
+        /**
+         * @return the language identifier, followed by the blank, comment and code line counts,
+         * or {@code null} if the file can not be counted with certainty.
+         */
+        private int[] count(ByteBuffer bytes, boolean docstringAsCode) {
+            int length = bytes.limit();
+            for (int i = 0; i < length; i++) {
+                int b = bytes.get(i) & 0xFF;
+                if (b == 0 || b == 0x0B || b == 0x85 || b == 0xA0) return null;
+                if (i < HEAD && (b >= 0x7F || b < 0x20 && !isSpace(b))) return null;
+            }
+            if (language.equals("TypeScript") && bytes.get(0) == '<') return null;
+            if (language.equals("C#") && hasSmalltalkLines(bytes)) return null;
+            int total = 0;
+            int blank = 0;
+            Text text = new Text(length);
+            boolean docstring = false;
+            boolean shebang = false;
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                while (end < length && bytes.get(end) != '\n') end++;
+                total++;
+                int last = end - 1;
+                if (last >= start && bytes.get(last) == '\r') last--;
+                if (last >= start && bytes.get(last) == '\\') return null;
+                int first = start;
+                while (first < end && isSpace(bytes.get(first))) first++;
+                boolean block = indexOf(bytes, start, end, "/*") >= 0 || indexOf(bytes, start, end, "*/") >= 0;
+                if (first == end) {
+                    blank++;
+                    start = end + 1;
+                    continue;
+                }
+                if (total - blank == 1) shebang = hash && end - start >= 2 && startsWith(bytes, start, "#!");
+                if (hash) {
+                    if (!block && bytes.get(first) != '#') {
+                        int offset = text.size;
+                        text.append(bytes, start, end);
+                        if (!docstringAsCode) docstring = text.convertDocstrings(offset, docstring);
+                    }
+                } else {
+                    int comment = indexOf(bytes, start, end, "//");
+                    if (comment >= 0 && block) return null;
+                    if (block && indexOfQuote(bytes, start, end) >= 0) return null;
+                    if (textBlocks && (indexOf(bytes, start, end, "\"\"\"") >= 0
+                            || indexOf(bytes, start, end, "'''") >= 0)) return null;
+                    if (comment != first) text.append(bytes, start, end);
+                }
+                start = end + 1;
+            }
+            int code = text.countCode();
+            if (shebang) code++;
+            return new int[]{Languages.id(language), blank, total - blank - code, code};
+        }
+    }
+
+    /*
+     * The lines left after removing blank lines and line comments, joined by line feeds.
+     */
+    private static final class Text {
+
+        private byte[] data;
+        private int size;
+
+        private Text(int capacity) {
+            data = new byte[capacity + 1];
+        }
+
+        private void append(ByteBuffer bytes, int start, int end) {
+            ensureCapacity(size + end - start + 1);
+            for (int i = start; i < end; i++) data[size++] = bytes.get(i);
+            data[size++] = '\n';
+        }
+
+        /*
+         * Replaces triple-quoted string delimiters on the last appended line with block comment delimiters.
+         * Opening delimiters drop a preceding unicode string prefix, while all other prefixes are left as is.
+         */
+        private boolean convertDocstrings(int offset, boolean docstring) {
+            boolean open = docstring;
+            int i = offset;
+            while (i + 2 < size) {
+                byte b = data[i];
+                if ((b == '"' || b == '\'') && data[i + 1] == b && data[i + 2] == b) {
+                    int prefix = !open && i > offset && (data[i - 1] == 'u' || data[i - 1] == 'U') ? 1 : 0;
+                    i -= prefix;
+                    data[i] = (byte) (open ? '*' : '/');
+                    data[i + 1] = (byte) (open ? '/' : '*');
+                    System.arraycopy(data, i + prefix + 3, data, i + 2, size - i - prefix - 3);
+                    size -= prefix + 1;
+                    open = !open;
+                    i += 2;
+                } else {
+                    i++;
+                }
+            }
+            return open;
+        }
+
+        /*
+         * Counts the non-blank lines left after removing all block comments,
+         * matching the leftmost opening delimiter with the nearest closing delimiter.
+         * If the text ends within an unterminated comment, the comment is left as is.
+         */
+        private int countCode() {
+            int code = 0;
+            boolean content = false;
+            boolean terminated = true;
+            int i = 0;
+            while (i < size) {
+                byte b = data[i];
+                if (terminated && b == '/' && i + 1 < size && data[i + 1] == '*') {
+                    int close = indexOf(i + 2);
+                    if (close >= 0) {
+                        i = close + 2;
+                        continue;
+                    }
+                    terminated = false;
+                }
+                if (b == '\n') {
+                    if (content) code++;
+                    content = false;
+                } else if (!isSpace(b)) {
+                    content = true;
+                }
+                i++;
+            }
+            return code;
+        }
+
+        private int indexOf(int from) {
+            for (int i = from; i + 1 < size; i++) {
+                if (data[i] == '*' && data[i + 1] == '/') return i;
+            }
+            return -1;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > data.length) data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    private static int indexOf(ByteBuffer bytes, int start, int end, String pattern) {
+        for (int i = start; i + pattern.length() <= end; i++) {
+            if (startsWith(bytes, i, pattern)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(ByteBuffer bytes, int offset, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes.get(offset + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /*
+     * cloc classifies .cs files as either C# or Smalltalk, scoring each line with its inline comment removed.
+     * Only lines ending in an exclamation mark or a closing bracket followed by a period score for Smalltalk,
+     * so files without such lines are always C#.
+     */
+    private static boolean hasSmalltalkLines(ByteBuffer bytes) {
+        int length = bytes.limit();
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && bytes.get(end) != '\n') end++;
+            int comment = indexOf(bytes, start, end, "//");
+            int last = (comment < 0 ? end : comment) - 1;
+            while (last >= start && isSpace(bytes.get(last))) last--;
+            if (last >= start && bytes.get(last) == '!') return true;
+            if (last > start && bytes.get(last) == '.' && bytes.get(last - 1) == ']') return true;
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static int indexOfQuote(ByteBuffer bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = bytes.get(i);
+            if (b == '"' || b == '\'' || b == '`') return i;
+        }
+        return -1;
+    }
+
+    private static boolean isSpace(int b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == '\n';
+    }
+}
@@ -0,0 +1,197 @@
+package ch.usi.si.seart.cloc;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Line counts aggregated by language.
+ * Counts are kept in primitive arrays indexed by an interned language table,
+ * so the footprint of an instance only depends on the number of distinct languages.
+ *
+ * @author Ozren Dabić
+ */
+public final class LanguageCounts {
+
+    private int[] files = new int[0];
+    private long[] blank = new long[0];
+    private long[] comment = new long[0];
+    private long[] code = new long[0];
+
+    LanguageCounts() {
+    }
+
+    void add(FileCount count) {
+        add(count.getLanguageId(), 1, count.getBlank(), count.getComment(), count.getCode());
+    }
+
+    void add(int language, int files, long blank, long comment, long code) {
+        ensureCapacity(language + 1);
+        this.files[language] += files;
+        this.blank[language] += blank;
+        this.comment[language] += comment;
+        this.code[language] += code;
+    }
+
+    void addAll(LanguageCounts other) {
+        for (int i = 0; i < other.files.length; i++) {
+            add(i, other.files[i], other.blank[i], other.comment[i], other.code[i]);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= files.length) return;
+        files = Arrays.copyOf(files, capacity);
+        blank = Arrays.copyOf(blank, capacity);
+        comment = Arrays.copyOf(comment, capacity);
+        code = Arrays.copyOf(code, capacity);
+    }
+
+    /**
+     * @return the names of all languages with non-zero counts,
+     * ordered by their position in the interned language table shared by all instances.
+     * This is the order in which the languages were first encountered within the JVM,
+     * and not necessarily the order in which they were added to these counts.
+     */
+    public Set<String> getLanguages() {
+        Set<String> languages = new LinkedHashSet<>();
+        for (int i = 0; i < files.length; i++) {
+            if (!isZero(i)) languages.add(Languages.name(i));
+        }
+        return Collections.unmodifiableSet(languages);
+    }
+
+    /**
+     * @param language the name of the language.
+     * @return the number of files written in the language, or 0 if there are none.
+     */
+    public int getFiles(String language) {
+        int id = Languages.find(language);
+        return 0 <= id && id < files.length ? files[id] : 0;
+    }
+
+    /**
+     * @param language the name of the language.
+     * @return the number of blank lines in files of the language, or 0 if there are none.
+     */
+    public long getBlank(String language) {
+        int id = Languages.find(language);
+        return 0 <= id && id < blank.length ? blank[id] : 0;
+    }
+
+    /**
+     * @param language the name of the language.
+     * @return the number of comment lines in files of the language, or 0 if there are none.
+     */
+    public long getComment(String language) {
+        int id = Languages.find(language);
+        return 0 <= id && id < comment.length ? comment[id] : 0;
+    }
+
+    /**
+     * @param language the name of the language.
+     * @return the number of code lines in files of the language, or 0 if there are none.
+     */
+    public long getCode(String language) {
+        int id = Languages.find(language);
+        return 0 <= id && id < code.length ? code[id] : 0;
+    }
+
+    /**
+     * @return the total number of counted files.
+     */
+    public int getFiles() {
+        return Arrays.stream(files).sum();
+    }
+
+    /**
+     * @return the total number of blank lines.
+     */
+    public long getBlank() {
+        return Arrays.stream(blank).sum();
+    }
+
+    /**
+     * @return the total number of comment lines.
+     */
+    public long getComment() {
+        return Arrays.stream(comment).sum();
+    }
+
+    /**
+     * @return the total number of code lines.
+     */
+    public long getCode() {
+        return Arrays.stream(code).sum();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        LanguageCounts that = (LanguageCounts) obj;
+        int length = Math.max(files.length, that.files.length);
+        for (int i = 0; i < length; i++) {
+            if (files(i) != that.files(i)) return false;
+            if (blank(i) != that.blank(i)) return false;
+            if (comment(i) != that.comment(i)) return false;
+            if (code(i) != that.code(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < files.length; i++) {
+            if (isZero(i)) continue;
+            result = 31 * result + i;
+            result = 31 * result + files[i];
+            result = 31 * result + Long.hashCode(blank[i]);
+            result = 31 * result + Long.hashCode(comment[i]);
+            result = 31 * result + Long.hashCode(code[i]);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("LanguageCounts{");
+        for (int i = 0; i < files.length; i++) {
+            if (isZero(i)) continue;
+            if (builder.charAt(builder.length() - 1) != '{') builder.append(", ");
+            builder.append(Languages.name(i))
+                    .append("=[files=").append(files[i])
+                    .append(", blank=").append(blank[i])
+                    .append(", comment=").append(comment[i])
+                    .append(", code=").append(code[i])
+                    .append(']');
+        }
+        return builder.append('}').toString();
+    }
+
+    private boolean isZero(int language) {
+        return files[language] == 0 && blank[language] == 0 && comment[language] == 0 && code[language] == 0;
+    }
+
+    int files(int language) {
+        return language < files.length ? files[language] : 0;
+    }
+
+    long blank(int language) {
+        return language < blank.length ? blank[language] : 0;
+    }
+
+    long comment(int language) {
+        return language < comment.length ? comment[language] : 0;
+    }
+
+    long code(int language) {
+        return language < code.length ? code[language] : 0;
+    }
+
+    int capacity() {
+        return files.length;
+    }
+}
@@ -0,0 +1,47 @@
+package ch.usi.si.seart.cloc;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interned table of the language names reported by {@code cloc}.
+ * Each distinct name is assigned a small, stable integer identifier,
+ * which results use to index their primitive count arrays.
+ * The table is shared by all results, so that identifiers can be compared and merged freely.
+ */
+final class Languages {
+
+    private static final Map<String, Integer> IDENTIFIERS = new ConcurrentHashMap<>();
+
+    private static volatile String[] NAMES = new String[64];
+
+    private static int SIZE = 0;
+
+    private Languages() {
+    }
+
+    static int id(String name) {
+        Integer id = IDENTIFIERS.get(name);
+        if (id != null) return id;
+        synchronized (Languages.class) {
+            id = IDENTIFIERS.get(name);
+            if (id != null) return id;
+            String[] names = NAMES;
+            if (SIZE == names.length) names = Arrays.copyOf(names, names.length * 2);
+            names[SIZE] = name;
+            NAMES = names;
+            IDENTIFIERS.put(name, SIZE);
+            return SIZE++;
+        }
+    }
+
+    static int find(String name) {
+        Integer id = IDENTIFIERS.get(name);
+        return id != null ? id : -1;
+    }
+
+    static String name(int id) {
+        return NAMES[id];
+    }
+}
@@ -0,0 +1,67 @@
+package ch.usi.si.seart.cloc;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Helpers for handing an explicit list of files and directories to {@code cloc} via {@code --list-file}.
+ */
+final class ListFiles {
+
+    /**
+     * The charset the JVM uses to encode file names into the bytes passed to the operating system.
+     * Perl opens files using the bytes it is given, so paths must be encoded the same way to refer to the same files,
+     * which the default charset does not guarantee.
+     */
+    static final Charset CHARSET = nativeCharset();
+
+    private ListFiles() {
+    }
+
+    private static Charset nativeCharset() {
+        String name = System.getProperty("sun.jnu.encoding");
+        try {
+            if (name != null) return Charset.forName(name);
+        } catch (IllegalArgumentException ignored) {
+        }
+        return Charset.defaultCharset();
+    }
+
+    static Path write(Collection<Path> paths) throws IOException {
+        Path file = Files.createTempFile("cloc", ".list");
+        try {
+            List<String> lines = paths.stream().map(ListFiles::normalize).collect(Collectors.toList());
+            Files.write(file, lines, CHARSET);
+            return file;
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(file);
+            throw ex;
+        }
+    }
+
+    static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    static String normalize(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Separators are unified, since the command may report paths using either separator on Windows.
+     */
+    static boolean contains(String root, String path) {
+        String normalizedRoot = root.replace('\\', '/');
+        String normalizedPath = path.replace('\\', '/');
+        return normalizedPath.equals(normalizedRoot)
+                || normalizedPath.startsWith(normalizedRoot.endsWith("/") ? normalizedRoot : normalizedRoot + "/");
+    }
+}
@@ -14,12 +14,15 @@ class MD5 {
     private MD5() {
     }
 
-    @SuppressWarnings({"checkstyle:EmptyStatement", "StatementWithEmptyBody"})
     static String hash(File file) throws IOException, NoSuchAlgorithmException {
-        try (
-            InputStream fileStream = Files.newInputStream(file.toPath());
-            DigestInputStream digestStream = new DigestInputStream(fileStream, MessageDigest.getInstance("MD5"))
-        ) {
+        try (InputStream fileStream = Files.newInputStream(file.toPath())) {
+            return hash(fileStream);
+        }
+    }
+
+    @SuppressWarnings({"checkstyle:EmptyStatement", "StatementWithEmptyBody"})
+    static String hash(InputStream stream) throws IOException, NoSuchAlgorithmException {
+        try (DigestInputStream digestStream = new DigestInputStream(stream, MessageDigest.getInstance("MD5"))) {
             byte[] buffer = new byte[8192];
             while (digestStream.read(buffer, 0, buffer.length) != -1);
             byte[] digested = digestStream.getMessageDigest().digest();
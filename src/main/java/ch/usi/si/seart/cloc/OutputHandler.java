@@ -0,0 +1,25 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Consumes the output of a {@code cloc} command as it is being produced.
+ *
+ * @param <T> the type of the result obtained from the output.
+ */
+@FunctionalInterface
+interface OutputHandler<T> {
+
+    /**
+     * Read the command output from the provided parser.
+     * Implementations should process the tokens incrementally,
+     * instead of buffering the entire output in memory.
+     *
+     * @param parser the parser positioned before the first output token.
+     * @return the result derived from the output.
+     * @throws IOException if the output could not be read or is malformed.
+     */
+    T handle(JsonParser parser) throws IOException;
+}
@@ -0,0 +1,155 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Streaming handlers that map the {@code cloc} JSON output onto typed results.
+ * Entries are read one at a time, so no intermediate tree is ever built.
+ */
+final class OutputParsers {
+
+    private static final String HEADER = "header";
+    private static final String SUM = "SUM";
+
+    private OutputParsers() {
+    }
+
+    static OutputHandler<LanguageCounts> languageCounts() {
+        return parser -> {
+            LanguageCounts counts = new LanguageCounts();
+            forEachEntry(parser, entry -> {
+                if (entry.language != null) {
+                    counts.add(Languages.id(entry.language), 1, entry.blank, entry.comment, entry.code);
+                } else if (entry.files >= 0) {
+                    counts.add(Languages.id(entry.name), entry.files, entry.blank, entry.comment, entry.code);
+                }
+            });
+            return counts;
+        };
+    }
+
+    static OutputHandler<FileCounts> fileCounts() {
+        return parser -> {
+            FileCounts counts = new FileCounts();
+            forEachEntry(parser, entry -> {
+                if (entry.language == null) return;
+                counts.add(entry.name, Languages.id(entry.language), entry.blank(), entry.comment(), entry.code());
+            });
+            return counts;
+        };
+    }
+
+    static OutputHandler<Report> report() {
+        return parser -> {
+            FileCounts counts = new FileCounts();
+            ObjectNode header = forEachEntry(parser, entry -> {
+                if (entry.language == null) return;
+                counts.add(entry.name, Languages.id(entry.language), entry.blank(), entry.comment(), entry.code());
+            });
+            return new Report(header, counts);
+        };
+    }
+
+    static OutputHandler<LanguageCounts> fileCounts(Consumer<? super FileCount> action) {
+        return parser -> {
+            LanguageCounts counts = new LanguageCounts();
+            forEachEntry(parser, entry -> {
+                if (entry.language == null) return;
+                int language = Languages.id(entry.language);
+                FileCount count = new FileCount(entry.name, language, entry.blank(), entry.comment(), entry.code());
+                counts.add(count);
+                action.accept(count);
+            });
+            return counts;
+        };
+    }
+
+    private static ObjectNode forEachEntry(JsonParser parser, Consumer<Entry> action) throws IOException {
+        ObjectNode header = null;
+        JsonToken token = parser.nextToken();
+        if (token == null) return null;
+        if (token != JsonToken.START_OBJECT)
+            throw MismatchedInputException.from(parser, Object.class, "Expected a JSON object!");
+        Entry entry = new Entry();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT && HEADER.equals(name)) {
+                header = parser.readValueAsTree();
+                continue;
+            }
+            if (token != JsonToken.START_OBJECT || SUM.equals(name)) {
+                parser.skipChildren();
+                continue;
+            }
+            entry.reset(name);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "language":
+                        entry.language = parser.getValueAsString();
+                        break;
+                    case "nFiles":
+                        entry.files = parser.getValueAsInt();
+                        break;
+                    case "blank":
+                        entry.blank = parser.getValueAsLong();
+                        break;
+                    case "comment":
+                        entry.comment = parser.getValueAsLong();
+                        break;
+                    case "code":
+                        entry.code = parser.getValueAsLong();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            action.accept(entry);
+        }
+        return header;
+    }
+
+    /**
+     * A single reusable output entry.
+     * Entries describing a file carry a language,
+     * while entries describing a language carry a file count.
+     */
+    private static final class Entry {
+
+        private String name;
+        private String language;
+        private int files;
+        private long blank;
+        private long comment;
+        private long code;
+
+        private void reset(String name) {
+            this.name = name;
+            this.language = null;
+            this.files = -1;
+            this.blank = 0;
+            this.comment = 0;
+            this.code = 0;
+        }
+
+        private int blank() {
+            return Math.toIntExact(blank);
+        }
+
+        private int comment() {
+            return Math.toIntExact(comment);
+        }
+
+        private int code() {
+            return Math.toIntExact(code);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Renders typed results in the same JSON shapes as the {@code cloc} command output.
+ * Entries are ordered the same way the command orders them: by code lines, in descending order.
+ */
+final class OutputWriters {
+
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    private OutputWriters() {
+    }
+
+    static ObjectNode linesByLanguage(ObjectNode header, LanguageCounts counts) {
+        ObjectNode result = FACTORY.objectNode();
+        result.set("header", header(header, counts));
+        languages(counts).forEach(id -> {
+            ObjectNode entry = result.putObject(Languages.name(id));
+            entry.put("nFiles", counts.files(id));
+            put(entry, "blank", counts.blank(id));
+            put(entry, "comment", counts.comment(id));
+            put(entry, "code", counts.code(id));
+        });
+        result.set("SUM", sum(counts));
+        return result;
+    }
+
+    static ObjectNode linesByFile(ObjectNode header, FileCounts counts) {
+        LanguageCounts totals = counts.getLanguageCounts();
+        ObjectNode result = FACTORY.objectNode();
+        result.set("header", header(header, totals));
+        IntStream.range(0, counts.size())
+                .boxed()
+                .sorted(Comparator.<Integer>comparingInt(counts::code).reversed().thenComparing(counts::path))
+                .forEach(index -> {
+                    ObjectNode entry = result.putObject(counts.path(index));
+                    entry.put("blank", counts.blank(index));
+                    entry.put("comment", counts.comment(index));
+                    entry.put("code", counts.code(index));
+                    entry.put("language", Languages.name(counts.language(index)));
+                });
+        result.set("SUM", sum(totals));
+        return result;
+    }
+
+    static ObjectNode linesByFileAndLanguage(ObjectNode header, FileCounts counts) {
+        ObjectNode byLanguage = linesByLanguage(header, counts.getLanguageCounts());
+        byLanguage.remove("header");
+        ObjectNode result = FACTORY.objectNode();
+        result.set("by_file", linesByFile(header, counts));
+        result.set("by_lang", byLanguage);
+        return result;
+    }
+
+    static ObjectNode countFiles(ObjectNode header, LanguageCounts counts) {
+        ObjectNode result = FACTORY.objectNode();
+        result.set("header", header(header, counts));
+        languages(counts).forEach(id -> result.putObject(Languages.name(id)).put("nFiles", counts.files(id)));
+        result.putObject("SUM").put("nFiles", counts.getFiles());
+        return result;
+    }
+
+    private static IntStream languages(LanguageCounts counts) {
+        return IntStream.range(0, counts.capacity())
+                .filter(id -> counts.files(id) > 0)
+                .boxed()
+                .sorted(Comparator.<Integer>comparingLong(counts::code).reversed().thenComparing(Languages::name))
+                .mapToInt(Integer::intValue);
+    }
+
+    private static ObjectNode header(ObjectNode header, LanguageCounts counts) {
+        ObjectNode result = header != null ? header.deepCopy() : FACTORY.objectNode();
+        if (header == null) {
+            result.put("cloc_url", CLOC.getURL());
+            result.put("cloc_version", CLOC.getVersion());
+        }
+        result.put("n_files", counts.getFiles());
+        put(result, "n_lines", counts.getBlank() + counts.getComment() + counts.getCode());
+        return result;
+    }
+
+    /**
+     * Numbers are stored using the narrowest type that fits them,
+     * so that rendered results compare equal to the parsed command output.
+     */
+    static void put(ObjectNode node, String name, long value) {
+        if (value == (int) value) node.put(name, (int) value);
+        else node.put(name, value);
+    }
+
+    private static ObjectNode sum(LanguageCounts counts) {
+        ObjectNode sum = FACTORY.objectNode();
+        put(sum, "blank", counts.getBlank());
+        put(sum, "comment", counts.getComment());
+        put(sum, "code", counts.getCode());
+        sum.put("nFiles", counts.getFiles());
+        return sum;
+    }
+}
@@ -0,0 +1,57 @@
+package ch.usi.si.seart.cloc;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The results of an {@link Execution}, which may not have counted all the target files.
+ *
+ * @author Ozren Dabić
+ */
+public final class PartialReport {
+
+    private final Report report;
+    private final List<Path> unprocessed;
+    private final List<CLOCException> exceptions;
+
+    PartialReport(Report report, List<Path> unprocessed, List<CLOCException> exceptions) {
+        this.report = report;
+        this.unprocessed = Collections.unmodifiableList(unprocessed);
+        this.exceptions = Collections.unmodifiableList(exceptions);
+    }
+
+    /**
+     * @return the counts of all files processed so far, from which all result shapes can be obtained.
+     */
+    @NotNull
+    public Report getReport() {
+        return report;
+    }
+
+    /**
+     * @return the files that have not been processed,
+     * either because they were not reached in time or because their processing failed.
+     */
+    @NotNull
+    public List<Path> getUnprocessed() {
+        return unprocessed;
+    }
+
+    /**
+     * @return the exceptions that caused processing to fail, excluding those caused by cancellation.
+     */
+    @NotNull
+    public List<CLOCException> getExceptions() {
+        return exceptions;
+    }
+
+    /**
+     * @return whether all files were processed.
+     */
+    public boolean isComplete() {
+        return unprocessed.isEmpty();
+    }
+}
@@ -0,0 +1,108 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The result of a single {@code cloc} run, from which all report shapes can be derived.
+ * The by-language totals and file counts are computed from the per-file rows,
+ * so obtaining every view costs only one command execution.
+ *
+ * @author Ozren Dabić
+ */
+public final class Report {
+
+    private final ObjectNode header;
+    private final FileCounts files;
+    private final Map<String, String> duplicates;
+
+    private LanguageCounts languages;
+    private DirectoryTree tree;
+
+    Report(ObjectNode header, FileCounts files) {
+        this(header, files, Collections.emptyMap());
+    }
+
+    Report(ObjectNode header, FileCounts files, Map<String, String> duplicates) {
+        this.header = header;
+        this.files = files;
+        this.duplicates = Collections.unmodifiableMap(duplicates);
+    }
+
+    /**
+     * @return the line counts of each file.
+     */
+    public FileCounts getFileCounts() {
+        return files;
+    }
+
+    /**
+     * Obtain the files excluded from the counts because their contents are identical to that of another file.
+     * Only available if the files were checked for uniqueness within the JVM,
+     * since {@code cloc} does not report the files it excludes.
+     *
+     * @return the paths of the excluded files, mapped to the paths of the counted files with identical contents.
+     */
+    public Map<String, String> getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return the line counts of each language.
+     */
+    public LanguageCounts getLanguageCounts() {
+        if (languages == null) languages = files.getLanguageCounts();
+        return languages;
+    }
+
+    /**
+     * @return the line counts of each directory, rolled up from the counts of each file.
+     */
+    public DirectoryTree getDirectoryTree() {
+        if (tree == null) tree = DirectoryTree.of(files);
+        return tree;
+    }
+
+    /**
+     * Obtain the counts by language, in the same shape as {@link CLOC#linesByLanguage()}.
+     *
+     * @return A JSON object representation of the counts.
+     */
+    public ObjectNode linesByLanguage() {
+        if (files.isEmpty()) return JsonNodeFactory.instance.objectNode();
+        return OutputWriters.linesByLanguage(header, getLanguageCounts());
+    }
+
+    /**
+     * Obtain the counts by file, in the same shape as {@link CLOC#linesByFile()}.
+     *
+     * @return A JSON object representation of the counts.
+     */
+    public ObjectNode linesByFile() {
+        if (files.isEmpty()) return JsonNodeFactory.instance.objectNode();
+        return OutputWriters.linesByFile(header, files);
+    }
+
+    /**
+     * Obtain the counts by file and language, in the same shape as {@link CLOC#linesByFileAndLanguage()}.
+     *
+     * @return A JSON object representation of the counts.
+     */
+    public ObjectNode linesByFileAndLanguage() {
+        if (files.isEmpty()) return JsonNodeFactory.instance.objectNode();
+        return OutputWriters.linesByFileAndLanguage(header, files);
+    }
+
+    /**
+     * Obtain the file counts by language, in the same shape as {@link CLOC#countFiles()}.
+     *
+     * @return A JSON object representation of the counts.
+     */
+    public ObjectNode countFiles() {
+        if (files.isEmpty()) return JsonNodeFactory.instance.objectNode();
+        return OutputWriters.countFiles(header, getLanguageCounts());
+    }
+}
@@ -0,0 +1,615 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A compact, read-only binary representation of the counts by file, as returned by {@link CLOC#linesByFile()}.
+ * <p>
+ * Rows are sorted by path and stored column-wise. Paths are split into a dictionary of distinct directories and
+ * the names of the files, languages are dictionary-encoded, and counts are stored as variable-length integers.
+ * Columns are divided into blocks of 64 rows, the offsets of which are recorded, so that a single row is decoded
+ * without decoding the preceding blocks. The totals of each language are computed once, when the file is written.
+ * <p>
+ * Files are opened by mapping them into memory, with only the language table read upfront. Totals by language are
+ * therefore obtained without reading any rows, while looking up a single file only decodes the rows visited by a
+ * binary search over the sorted paths. Converting a file back to JSON yields an object equal to the one it was
+ * written from, including the order of its entries. Instances are safe for use by multiple threads.
+ *
+ * @author Ozren Dabić
+ */
+public final class ReportFile {
+
+    private static final int MAGIC = 0x4A434C43;
+    private static final int VERSION = 1;
+    private static final int BLOCK_SIZE = 64;
+
+    private static final int LANGUAGES = 0;
+    private static final int TOTALS = 1;
+    private static final int METADATA = 2;
+    private static final int DIRECTORIES = 3;
+    private static final int NAMES = 4;
+    private static final int DIRECTORY = 5;
+    private static final int LANGUAGE = 6;
+    private static final int BLANK = 7;
+    private static final int COMMENT = 8;
+    private static final int CODE = 9;
+    private static final int ORDER = 10;
+    private static final int SECTIONS = 11;
+
+    /*
+     * Set if the entries were ordered the same way the command orders them, in which case no order column is stored.
+     */
+    private static final int CANONICAL_ORDER = 1;
+
+    private static final int PREAMBLE = Integer.BYTES * (4 + SECTIONS);
+
+    private static final String HEADER = "header";
+    private static final String SUM = "SUM";
+
+    private static final JsonMapper MAPPER = new JsonMapper();
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final int rows;
+    private final boolean canonical;
+    private final int[] offsets = new int[SECTIONS];
+    private final int[] ends = new int[SECTIONS];
+    private final int[] languages;
+    private final LanguageCounts totals = new LanguageCounts();
+
+    private ReportFile(Path path, ByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < PREAMBLE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a report file: " + path);
+        }
+        if (buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("Unsupported report file version: " + buffer.getInt(Integer.BYTES));
+        }
+        this.rows = buffer.getInt(Integer.BYTES * 2);
+        this.canonical = (buffer.getInt(Integer.BYTES * 3) & CANONICAL_ORDER) != 0;
+        for (int i = 0; i < SECTIONS; i++) {
+            offsets[i] = buffer.getInt(Integer.BYTES * (4 + i));
+        }
+        for (int i = 0; i < SECTIONS; i++) {
+            ends[i] = i + 1 < SECTIONS ? offsets[i + 1] : buffer.capacity();
+        }
+        validate();
+        this.languages = new int[count(LANGUAGES)];
+        Cursor cursor = new Cursor(TOTALS);
+        for (int i = 0; i < languages.length; i++) {
+            languages[i] = Languages.id(string(LANGUAGES, i));
+            totals.add(languages[i], (int) cursor.next(), cursor.next(), cursor.next(), cursor.next());
+        }
+        if (cursor.position != ends[TOTALS]) throw invalid();
+    }
+
+    /*
+     * Sections follow each other in order, and every offset and count within them must stay inside their bounds,
+     * so that truncated or corrupt files are rejected before any of their rows are read. The data of each section
+     * must also end exactly where the next section starts, which for columns is checked by decoding their last block.
+     */
+    private void validate() throws IOException {
+        if (rows < 0 || offsets[0] != PREAMBLE) throw invalid();
+        for (int i = 0; i < SECTIONS; i++) {
+            if (offsets[i] < PREAMBLE || ends[i] < offsets[i]) throw invalid();
+        }
+        long blocks = (rows + BLOCK_SIZE - 1L) / BLOCK_SIZE;
+        validateStrings(LANGUAGES, -1);
+        validateStrings(METADATA, 2);
+        validateStrings(DIRECTORIES, -1);
+        validateStrings(NAMES, rows);
+        validateColumn(DIRECTORY, blocks);
+        validateColumn(LANGUAGE, blocks);
+        validateColumn(BLANK, blocks);
+        validateColumn(COMMENT, blocks);
+        validateColumn(CODE, blocks);
+        validateColumn(ORDER, canonical ? 0 : blocks);
+    }
+
+    private void validateStrings(int section, int expected) throws IOException {
+        int count = header(section);
+        if (count < 0 || expected >= 0 && count != expected) throw invalid();
+        int last = validateTable(section, count + 1L);
+        if (last != ends[section]) throw invalid();
+    }
+
+    private void validateColumn(int section, long blocks) throws IOException {
+        if (header(section) != blocks) throw invalid();
+        int last = validateTable(section, blocks);
+        if (blocks > 0) {
+            Cursor cursor = new Cursor(section, last);
+            for (int i = (rows - 1) % BLOCK_SIZE; i >= 0; i--) cursor.next();
+            last = cursor.position;
+        }
+        if (last != ends[section]) throw invalid();
+    }
+
+    private int header(int section) throws IOException {
+        if (ends[section] - offsets[section] < Integer.BYTES) throw invalid();
+        return buffer.getInt(offsets[section]);
+    }
+
+    /*
+     * Offsets in a table are relative to the data that follows it, and never decrease.
+     * Returns the position the last offset points to, which is the start of the data if the table is empty.
+     */
+    private int validateTable(int section, long size) throws IOException {
+        int start = offsets[section];
+        long data = start + (long) Integer.BYTES * (size + 1);
+        if (data > ends[section]) throw invalid();
+        int previous = 0;
+        for (int i = 0; i < size; i++) {
+            int offset = buffer.getInt(start + Integer.BYTES * (i + 1));
+            if (offset < previous || data + offset > ends[section]) throw invalid();
+            previous = offset;
+        }
+        return (int) data + previous;
+    }
+
+    private IOException invalid() {
+        return new IOException("Not a report file: " + path);
+    }
+
+    /**
+     * Write the counts by file to the specified file, replacing it if it already exists.
+     *
+     * @param file the file to write to, mustn't be {@code null}.
+     * @param report the report to write, mustn't be {@code null}.
+     * @throws NullPointerException if either argument is {@code null}.
+     * @throws UncheckedIOException if the file could not be written.
+     */
+    public static void write(@NotNull Path file, @NotNull Report report) {
+        Objects.requireNonNull(report, "Report must not be null!");
+        write(file, report.linesByFile());
+    }
+
+    /**
+     * Write the counts by file to the specified file, replacing it if it already exists.
+     *
+     * @param file the file to write to, mustn't be {@code null}.
+     * @param linesByFile the output of {@link CLOC#linesByFile()}, mustn't be {@code null}.
+     * @throws NullPointerException if either argument is {@code null}.
+     * @throws IllegalArgumentException if the output contains an entry that is not a file.
+     * @throws UncheckedIOException if the file could not be written.
+     */
+    public static void write(@NotNull Path file, @NotNull ObjectNode linesByFile) {
+        Objects.requireNonNull(file, "File must not be null!");
+        Objects.requireNonNull(linesByFile, "Output must not be null!");
+        try {
+            Files.write(file, encode(linesByFile));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Open a file previously written by {@link #write(Path, ObjectNode)}.
+     * The file is mapped into memory, and must not be modified while it is in use.
+     *
+     * @param file the file to open, mustn't be {@code null}.
+     * @return a reader of the specified file.
+     * @throws NullPointerException if the file is {@code null}.
+     * @throws UncheckedIOException if the file could not be read, or is not a report file.
+     */
+    @Contract("_ -> new")
+    public static @NotNull ReportFile open(@NotNull Path file) {
+        Objects.requireNonNull(file, "File must not be null!");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ReportFile(file, buffer);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @return the path of the underlying file.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the number of counted files.
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Obtain the totals of each language, without reading the counts of individual files.
+     *
+     * @return the line counts of all files, grouped by language.
+     */
+    public LanguageCounts getLanguageCounts() {
+        return totals;
+    }
+
+    /**
+     * Look up the counts of a single file.
+     *
+     * @param path the path of the file, exactly as reported by the command.
+     * @return the counts of the file, or {@code null} if it was not counted.
+     * @throws UncheckedIOException if the file contents are corrupt.
+     */
+    public @Nullable FileCount get(@NotNull String path) {
+        Objects.requireNonNull(path, "Path must not be null!");
+        int low = 0;
+        int high = rows - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            String current = path(middle);
+            int comparison = current.compareTo(path);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return new FileCount(
+                        current,
+                        languages[(int) value(LANGUAGE, middle)],
+                        (int) value(BLANK, middle),
+                        (int) value(COMMENT, middle),
+                        (int) value(CODE, middle)
+                );
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read the counts of all files.
+     *
+     * @return the line counts of each file, in the order they were written.
+     * @throws UncheckedIOException if the file contents are corrupt.
+     */
+    public FileCounts getFileCounts() {
+        Rows all = new Rows();
+        FileCounts counts = new FileCounts();
+        for (int row : all.order) {
+            int language = languages[(int) all.language[row]];
+            counts.add(all.path(row), language, all.blank[row], all.comment[row], all.code[row]);
+        }
+        return counts;
+    }
+
+    /**
+     * Convert the file back to the shape it was written from.
+     *
+     * @return a JSON object equal to the output of {@link CLOC#linesByFile()} that was written.
+     * @throws UncheckedIOException if the file contents are corrupt.
+     */
+    public ObjectNode linesByFile() {
+        ObjectNode result = JsonNodeFactory.instance.objectNode();
+        String header = string(METADATA, 0);
+        String sum = string(METADATA, 1);
+        try {
+            if (!header.isEmpty()) result.set(HEADER, MAPPER.readTree(header));
+            Rows all = new Rows();
+            for (int row : all.order) {
+                ObjectNode entry = result.putObject(all.path(row));
+                OutputWriters.put(entry, "blank", all.blank[row]);
+                OutputWriters.put(entry, "comment", all.comment[row]);
+                OutputWriters.put(entry, "code", all.code[row]);
+                entry.put("language", Languages.name(languages[(int) all.language[row]]));
+            }
+            if (!sum.isEmpty()) result.set(SUM, MAPPER.readTree(sum));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportFile{path=" + path + ", size=" + rows + '}';
+    }
+
+    private String path(int row) {
+        return string(DIRECTORIES, (int) value(DIRECTORY, row)) + string(NAMES, row);
+    }
+
+    private int count(int section) {
+        return buffer.getInt(offsets[section]);
+    }
+
+    private String string(int section, int index) {
+        int start = offsets[section];
+        int count = buffer.getInt(start);
+        int data = start + Integer.BYTES * (count + 2);
+        int from = data + buffer.getInt(start + Integer.BYTES * (index + 1));
+        int to = data + buffer.getInt(start + Integer.BYTES * (index + 2));
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = buffer.get(from + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long value(int section, int row) {
+        int start = offsets[section];
+        int blocks = buffer.getInt(start);
+        int data = start + Integer.BYTES * (blocks + 1);
+        int block = buffer.getInt(start + Integer.BYTES * (row / BLOCK_SIZE + 1));
+        Cursor cursor = new Cursor(section, data + block);
+        for (int i = row % BLOCK_SIZE; i > 0; i--) cursor.next();
+        return cursor.next();
+    }
+
+    private long[] values(int section) {
+        int start = offsets[section];
+        int blocks = buffer.getInt(start);
+        Cursor cursor = new Cursor(section, start + Integer.BYTES * (blocks + 1));
+        long[] values = new long[rows];
+        for (int i = 0; i < values.length; i++) values[i] = cursor.next();
+        return values;
+    }
+
+    /*
+     * Variable-length integers are zigzag-encoded, seven bits at a time, least significant group first.
+     * Reading past the end of the section means that the file is corrupt.
+     */
+    private final class Cursor {
+
+        private final int end;
+        private int position;
+
+        private Cursor(int section) {
+            this(section, offsets[section]);
+        }
+
+        private Cursor(int section, int position) {
+            this.end = ends[section];
+            this.position = position;
+        }
+
+        private long next() {
+            long result = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (position >= end || shift >= Long.SIZE) throw new UncheckedIOException(invalid());
+                byte current = buffer.get(position++);
+                result |= (long) (current & 0x7F) << shift;
+                if (current >= 0) return (result >>> 1) ^ -(result & 1);
+            }
+        }
+    }
+
+    /*
+     * All columns decoded at once, for reading every row.
+     */
+    private final class Rows {
+
+        private final String[] directories = new String[count(DIRECTORIES)];
+        private final long[] directory = values(DIRECTORY);
+        private final long[] language = values(LANGUAGE);
+        private final int[] blank = ints(values(BLANK));
+        private final int[] comment = ints(values(COMMENT));
+        private final int[] code = ints(values(CODE));
+        private final int[] order;
+
+        private Rows() {
+            for (int i = 0; i < directories.length; i++) directories[i] = string(DIRECTORIES, i);
+            order = canonical ? canonicalOrder(code) : ints(values(ORDER));
+        }
+
+        private String path(int row) {
+            return directories[(int) directory[row]] + string(NAMES, row);
+        }
+    }
+
+    private static int[] ints(long[] values) {
+        int[] result = new int[values.length];
+        for (int i = 0; i < values.length; i++) result[i] = (int) values[i];
+        return result;
+    }
+
+    /*
+     * Rows are sorted by path, so a stable sort by code lines in descending order
+     * yields the order in which the command reports them.
+     */
+    private static int[] canonicalOrder(int[] code) {
+        Integer[] order = new Integer[code.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.<Integer>comparingInt(row -> code[row]).reversed());
+        return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static byte[] encode(ObjectNode linesByFile) throws IOException {
+        JsonNode header = linesByFile.get(HEADER);
+        JsonNode sum = linesByFile.get(SUM);
+        List<Row> written = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> entry : linesByFile.properties()) {
+            String path = entry.getKey();
+            if (HEADER.equals(path) || SUM.equals(path)) continue;
+            JsonNode file = entry.getValue();
+            JsonNode language = file.get("language");
+            if (language == null || !language.isTextual()) {
+                throw new IllegalArgumentException("Not a file entry: " + path);
+            }
+            Row row = new Row(
+                    path,
+                    language.textValue(),
+                    file.path("blank").asInt(),
+                    file.path("comment").asInt(),
+                    file.path("code").asInt()
+            );
+            row.position = written.size();
+            written.add(row);
+        }
+
+        Row[] sorted = written.toArray(new Row[0]);
+        Arrays.sort(sorted, Comparator.comparing(row -> row.path));
+        int[] code = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) code[i] = sorted[i].code;
+        int[] canonical = canonicalOrder(code);
+        boolean ordered = true;
+        for (int i = 0; i < canonical.length && ordered; i++) ordered = sorted[canonical[i]].position == i;
+
+        Map<String, Integer> languageIds = new HashMap<>();
+        List<String> languageNames = new ArrayList<>();
+        List<long[]> languageTotals = new ArrayList<>();
+        Map<String, Integer> directoryIds = new HashMap<>();
+        List<String> directoryNames = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        long[] directory = new long[sorted.length];
+        long[] language = new long[sorted.length];
+        long[] blank = new long[sorted.length];
+        long[] comment = new long[sorted.length];
+        long[] lines = new long[sorted.length];
+        long[] order = new long[ordered ? 0 : sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            Row row = sorted[i];
+            int separator = Math.max(row.path.lastIndexOf('/'), row.path.lastIndexOf('\\')) + 1;
+            String prefix = row.path.substring(0, separator);
+            directory[i] = directoryIds.computeIfAbsent(prefix, key -> {
+                directoryNames.add(key);
+                return directoryNames.size() - 1;
+            });
+            names.add(row.path.substring(separator));
+            int id = languageIds.computeIfAbsent(row.language, key -> {
+                languageNames.add(key);
+                languageTotals.add(new long[4]);
+                return languageNames.size() - 1;
+            });
+            long[] total = languageTotals.get(id);
+            total[0]++;
+            total[1] += row.blank;
+            total[2] += row.comment;
+            total[3] += row.code;
+            language[i] = id;
+            blank[i] = row.blank;
+            comment[i] = row.comment;
+            lines[i] = row.code;
+            if (!ordered) order[row.position] = i;
+        }
+
+        Section totals = new Section();
+        languageTotals.forEach(total -> Arrays.stream(total).forEach(totals::putVarLong));
+        Section[] sections = new Section[SECTIONS];
+        sections[LANGUAGES] = Section.strings(languageNames);
+        sections[TOTALS] = totals;
+        sections[METADATA] = Section.strings(Arrays.asList(
+                header != null ? MAPPER.writeValueAsString(header) : "",
+                sum != null ? MAPPER.writeValueAsString(sum) : ""
+        ));
+        sections[DIRECTORIES] = Section.strings(directoryNames);
+        sections[NAMES] = Section.strings(names);
+        sections[DIRECTORY] = Section.column(directory);
+        sections[LANGUAGE] = Section.column(language);
+        sections[BLANK] = Section.column(blank);
+        sections[COMMENT] = Section.column(comment);
+        sections[CODE] = Section.column(lines);
+        sections[ORDER] = Section.column(order);
+
+        Section result = new Section();
+        result.putInt(MAGIC);
+        result.putInt(VERSION);
+        result.putInt(sorted.length);
+        result.putInt(ordered ? CANONICAL_ORDER : 0);
+        int offset = PREAMBLE;
+        for (Section section : sections) {
+            result.putInt(offset);
+            offset += section.size();
+        }
+        for (Section section : sections) result.append(section);
+        return result.toByteArray();
+    }
+
+    private static final class Row {
+
+        private final String path;
+        private final String language;
+        private final int blank;
+        private final int comment;
+        private final int code;
+        private int position;
+
+        private Row(String path, String language, int blank, int comment, int code) {
+            this.path = path;
+            this.language = language;
+            this.blank = blank;
+            this.comment = comment;
+            this.code = code;
+        }
+    }
+
+    private static final class Section extends ByteArrayOutputStream {
+
+        private void putInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        private void putVarLong(long value) {
+            long encoded = (value << 1) ^ (value >> 63);
+            while ((encoded & ~0x7FL) != 0) {
+                write((int) (encoded & 0x7F) | 0x80);
+                encoded >>>= 7;
+            }
+            write((int) encoded);
+        }
+
+        /*
+         * The number of strings, followed by the offsets at which each of them starts and the last one ends,
+         * relative to the UTF-8 encoded contents that follow.
+         */
+        private static Section strings(List<String> values) {
+            Section contents = new Section();
+            Section result = new Section();
+            result.putInt(values.size());
+            result.putInt(0);
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                contents.write(bytes, 0, bytes.length);
+                result.putInt(contents.size());
+            }
+            result.append(contents);
+            return result;
+        }
+
+        /*
+         * The number of blocks, followed by the offsets at which each block starts,
+         * relative to the variable-length integers that follow.
+         */
+        private static Section column(long[] values) {
+            Section contents = new Section();
+            Section result = new Section();
+            int blocks = (values.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            result.putInt(blocks);
+            for (int i = 0; i < values.length; i++) {
+                if (i % BLOCK_SIZE == 0) result.putInt(contents.size());
+                contents.putVarLong(values[i]);
+            }
+            result.append(contents);
+            return result;
+        }
+
+        private void append(Section section) {
+            write(section.buf, 0, section.count);
+        }
+    }
+}
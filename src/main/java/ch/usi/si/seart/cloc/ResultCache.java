@@ -0,0 +1,282 @@
+package ch.usi.si.seart.cloc;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A persistent, content-addressed cache of per-file counts.
+ * <p>
+ * Entries are keyed by the contents and name of each file,
+ * the {@code cloc} version, and all command options that affect how files are counted.
+ * When a command is configured with a cache, only the files missing from it are handed to {@code cloc},
+ * and the results are merged with the cached counts into the usual result shapes.
+ * Files that {@code cloc} does not recognize as source code are cached as well,
+ * so that they are not handed to the command over and over again.
+ * <p>
+ * Each entry is stored in a separate file that is written atomically,
+ * so a cache directory can be shared by concurrently running JVMs.
+ * Once the number of entries exceeds the configured maximum, the least recently used ones are evicted.
+ *
+ * @author Ozren Dabić
+ */
+public final class ResultCache {
+
+    private static final String NOT_COUNTED = "-";
+    private static final long TOUCH_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private final Path directory;
+    private final long maxEntries;
+    private final AtomicLong entries;
+
+    private ResultCache(Path directory, long maxEntries, long entries) {
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        this.entries = new AtomicLong(entries);
+    }
+
+    /**
+     * Open a cache stored in the specified directory, creating the directory if it does not exist.
+     *
+     * @param directory the cache directory, mustn't be {@code null}.
+     * @param maxEntries the maximum number of entries to retain.
+     * @return a cache backed by the specified directory.
+     * @throws NullPointerException if the directory is {@code null}.
+     * @throws IllegalArgumentException if the maximum number of entries is less than 1.
+     * @throws UncheckedIOException if the directory could not be created or read.
+     */
+    @Contract("_, _ -> new")
+    public static @NotNull ResultCache open(@NotNull Path directory, long maxEntries) {
+        Objects.requireNonNull(directory, "Directory must not be null!");
+        if (maxEntries < 1) throw new IllegalArgumentException("Maximum number of entries must be greater than 0!");
+        try {
+            Path root = Files.createDirectories(directory).toAbsolutePath();
+            return new ResultCache(root, maxEntries, list(root).size());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @return the directory in which entries are stored.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the maximum number of entries retained by the cache.
+     */
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return the approximate number of entries currently stored in the cache.
+     */
+    public long size() {
+        return entries.get();
+    }
+
+    /**
+     * Remove all entries from the cache.
+     *
+     * @throws UncheckedIOException if the entries could not be listed.
+     */
+    public void clear() {
+        try {
+            list(directory).forEach(entry -> delete(entry.path));
+            entries.set(0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Count the specified files, serving as many of them as possible from the cache.
+     *
+     * @param files the absolute paths of the files to count.
+     * @param signature the options that affect how files are counted.
+     * @param counter the counter used for the files missing from the cache.
+     * @return the counts of each file that was recognized as source code.
+     * @throws CLOCException if an error occurs while counting the missing files.
+     */
+    FileCounts count(List<Path> files, String signature, FileCounter counter) throws CLOCException {
+        String[] hashes = files.parallelStream().map(ResultCache::hash).toArray(String[]::new);
+        FileCounts result = new FileCounts();
+        List<Path> misses = new ArrayList<>();
+        Map<Path, Path> keys = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            String hash = hashes[i];
+            if (hash == null) {
+                misses.add(file);
+                continue;
+            }
+            Path fileName = file.getFileName();
+            Path entry = entry(signature + '\0' + fileName + '\0' + hash);
+            String value = read(entry);
+            if (value == null) {
+                misses.add(file);
+                keys.put(file, entry);
+            } else if (!NOT_COUNTED.equals(value)) {
+                String[] fields = value.split("\t");
+                String path = ListFiles.normalize(file);
+                int language = Languages.id(fields[0]);
+                int blank = Integer.parseInt(fields[1]);
+                int comment = Integer.parseInt(fields[2]);
+                int code = Integer.parseInt(fields[3]);
+                result.add(path, language, blank, comment, code);
+            }
+        }
+        if (misses.isEmpty()) return result;
+        FileCounts counted = counter.count(misses);
+        Map<String, FileCount> rows = new HashMap<>();
+        counted.forEach(count -> rows.put(count.getPath(), count));
+        for (Path file : misses) {
+            FileCount count = rows.get(ListFiles.normalize(file));
+            if (count != null) result.add(count);
+            Path entry = keys.get(file);
+            if (entry == null) continue;
+            String value = count != null
+                    ? count.getLanguage() + '\t' + count.getBlank() + '\t' + count.getComment() + '\t' + count.getCode()
+                    : NOT_COUNTED;
+            write(entry, value);
+        }
+        if (entries.get() > maxEntries) evict();
+        return result;
+    }
+
+    private Path entry(String key) {
+        String name = digest(key.getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(name.substring(0, 2)).resolve(name);
+    }
+
+    private static String read(Path entry) {
+        try {
+            byte[] bytes = Files.readAllBytes(entry);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            if (!NOT_COUNTED.equals(value) && value.split("\t").length != 4) return null;
+            FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+            FileTime modified = Files.getLastModifiedTime(entry);
+            if (now.toMillis() - modified.toMillis() > TOUCH_INTERVAL) Files.setLastModifiedTime(entry, now);
+            return value;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private void write(Path entry, String value) {
+        Path temporary = null;
+        try {
+            Path parent = Files.createDirectories(entry.getParent());
+            temporary = Files.createTempFile(parent, entry.getFileName().toString(), ".tmp");
+            Files.write(temporary, value.getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+            entries.incrementAndGet();
+        } catch (IOException ex) {
+            if (temporary != null) delete(temporary);
+        }
+    }
+
+    /**
+     * Entries are evicted down to 90% of the capacity, so that eviction does not run on every subsequent write.
+     * The directory is rescanned, as other processes sharing the cache may have added or removed entries.
+     */
+    private synchronized void evict() {
+        try {
+            List<Entry> all = list(directory);
+            long target = maxEntries - maxEntries / 10;
+            long excess = all.size() - target;
+            if (excess > 0) {
+                all.sort(Comparator.comparingLong(entry -> entry.modified));
+                all.stream().limit(excess).forEach(entry -> delete(entry.path));
+            }
+            entries.set(Math.max(0, all.size() - Math.max(0, excess)));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static List<Entry> list(Path directory) throws IOException {
+        List<Entry> result = new ArrayList<>();
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path shard : shards) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+                    for (Path file : files) {
+                        if (file.getFileName().toString().endsWith(".tmp")) continue;
+                        try {
+                            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                            result.add(new Entry(file, attributes.lastModifiedTime().toMillis()));
+                        } catch (IOException ignored) {
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String hash(Path file) {
+        try (InputStream stream = Files.newInputStream(file)) {
+            return MD5.hash(stream);
+        } catch (IOException ex) {
+            return null;
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            byte[] digested = MessageDigest.getInstance("MD5").digest(bytes);
+            StringBuilder builder = new StringBuilder(digested.length * 2);
+            for (byte b : digested) builder.append(String.format("%02x", b));
+            return builder.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Path path;
+        private final long modified;
+
+        private Entry(Path path, long modified) {
+            this.path = path;
+            this.modified = modified;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ch.usi.si.seart.cloc;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The results of executing the same command on many targets concurrently.
+ * Results are yielded in order of completion, as soon as each of them becomes available.
+ * Closing the scan cancels all executions that have not started yet.
+ *
+ * @param <T> the type of the command result.
+ * @author Ozren Dabić
+ */
+public final class Scan<T> implements Iterator<Scan.Result<T>>, AutoCloseable {
+
+    private final BlockingQueue<Result<T>> completed = new LinkedBlockingQueue<>();
+    private final List<CompletableFuture<T>> futures;
+
+    private int remaining;
+
+    Scan(List<Path> targets, List<CompletableFuture<T>> futures) {
+        this.futures = new ArrayList<>(futures);
+        this.remaining = futures.size();
+        for (int i = 0; i < futures.size(); i++) {
+            Path target = targets.get(i);
+            futures.get(i).whenComplete((value, ex) -> {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                completed.add(new Result<>(target, value, cause));
+            });
+        }
+    }
+
+    /**
+     * @return the number of results that have not been yielded yet.
+     */
+    public int getRemaining() {
+        return remaining;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return remaining > 0;
+    }
+
+    /**
+     * Obtain the next completed result, waiting for one to become available if necessary.
+     *
+     * @return the next completed result.
+     * @throws NoSuchElementException if all results have already been yielded.
+     * @throws CancellationException if the current thread is interrupted while waiting.
+     */
+    @Override
+    public Result<T> next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        try {
+            Result<T> result = completed.take();
+            remaining--;
+            return result;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            CancellationException exception = new CancellationException("Interrupted while waiting for results!");
+            exception.initCause(ex);
+            throw exception;
+        }
+    }
+
+    /**
+     * Cancel all executions that have not started yet.
+     * Their results are still yielded, failing with a {@link CancellationException}.
+     */
+    @Override
+    public void close() {
+        futures.forEach(future -> future.cancel(false));
+    }
+
+    /**
+     * The outcome of executing a command on a single target.
+     *
+     * @param <T> the type of the command result.
+     */
+    public static final class Result<T> {
+
+        private final Path target;
+        private final T value;
+        private final Throwable exception;
+
+        private Result(Path target, T value, Throwable exception) {
+            this.target = target;
+            this.value = value;
+            this.exception = exception;
+        }
+
+        /**
+         * @return the target of the command.
+         */
+        public Path getTarget() {
+            return target;
+        }
+
+        /**
+         * @return {@code true} if the command completed without errors.
+         */
+        public boolean isSuccessful() {
+            return exception == null;
+        }
+
+        /**
+         * @return the error that caused the command to fail, or {@code null} if it completed successfully.
+         */
+        @Nullable
+        public Throwable getException() {
+            return exception;
+        }
+
+        /**
+         * Obtain the result of the command, rethrowing the error that occurred during its execution.
+         *
+         * @return the command result.
+         * @throws CLOCException if an error occurs while executing the command.
+         * @throws RuntimeException if the command could not be created or was cancelled.
+         */
+        public T get() throws CLOCException {
+            if (exception == null) return value;
+            if (exception instanceof CLOCException) throw (CLOCException) exception;
+            if (exception instanceof RuntimeException) throw (RuntimeException) exception;
+            if (exception instanceof Error) throw (Error) exception;
+            throw new CLOCException(exception);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package ch.usi.si.seart.cloc;
+
+import org.jetbrains.annotations.Contract;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Limits the number of {@code cloc} processes running at the same time, along with their combined memory usage.
+ * <p>
+ * The command needs approximately twenty times the size of the largest file it counts in memory.
+ * Before starting, each command execution therefore reserves an estimate of the memory it needs,
+ * based on the size of the largest file among its targets, capped by the {@linkplain CLOC.Builder#maxFileSize(int)
+ * maximum file size}. Executions that would exceed the process or memory budget wait until enough running
+ * executions have completed. Waiting executions are admitted strictly in order of arrival, so that executions
+ * with large estimates are never starved by a steady stream of smaller ones. Executions with an estimate larger
+ * than the whole memory budget are admitted once they would run alone.
+ * <p>
+ * A scheduler can be shared by any number of commands, including those executed through a {@link WorkerPool}.
+ * Estimating the memory of a directory target requires walking it, in addition to the walk the command performs.
+ *
+ * @author Ozren Dabić
+ */
+public final class Scheduler {
+
+    private static final long MEGABYTE = 1L << 20;
+
+    /*
+     * The memory used by the interpreter and the compiled script, regardless of the counted files.
+     */
+    private static final long BASE_MEMORY = 64 * MEGABYTE;
+    private static final long MEMORY_FACTOR = 20;
+
+    private final int maxProcesses;
+    private final long maxMemory;
+
+    private final Deque<Object> queue = new ArrayDeque<>();
+
+    private int running = 0;
+    private long reserved = 0;
+
+    private Scheduler(Builder builder) {
+        this.maxProcesses = builder.maxProcesses;
+        this.maxMemory = builder.maxMemory;
+    }
+
+    /**
+     * Obtain a new {@link Builder Builder} for configuring a scheduler.
+     *
+     * @return a new scheduler builder instance.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Facilitates the construction of {@link Scheduler} instances.
+     * Input validations are performed at each build step.
+     */
+    public static final class Builder {
+
+        private int maxProcesses = Runtime.getRuntime().availableProcessors();
+        private long maxMemory = physicalMemory();
+
+        private Builder() {
+        }
+
+        /**
+         * Set the maximum number of processes running at the same time.
+         * Defaults to the number of available processors.
+         *
+         * @param value the maximum number of processes.
+         * @return this builder instance.
+         * @throws IllegalArgumentException if the value is less than 1.
+         */
+        @Contract(value = "_ -> this")
+        public Builder maxProcesses(int value) {
+            if (value < 1) throw new IllegalArgumentException("Maximum number of processes must be greater than 0!");
+            maxProcesses = value;
+            return this;
+        }
+
+        /**
+         * Set the maximum combined memory estimate of the processes running at the same time, in megabytes.
+         * Defaults to the total physical memory of the system, if it can be determined, or is unbounded otherwise.
+         *
+         * @param value the memory budget in megabytes.
+         * @return this builder instance.
+         * @throws IllegalArgumentException if the value is less than 1.
+         */
+        @Contract(value = "_ -> this")
+        public Builder maxMemory(int value) {
+            if (value < 1) throw new IllegalArgumentException("Maximum memory must be greater than 0!");
+            maxMemory = value * MEGABYTE;
+            return this;
+        }
+
+        /**
+         * Create a new scheduler with the current configuration.
+         *
+         * @return a new scheduler.
+         */
+        @Contract("-> new")
+        public Scheduler build() {
+            return new Scheduler(this);
+        }
+
+        private static long physicalMemory() {
+            OperatingSystemMXBean system = ManagementFactory.getOperatingSystemMXBean();
+            if (system instanceof com.sun.management.OperatingSystemMXBean) {
+                long total = ((com.sun.management.OperatingSystemMXBean) system).getTotalPhysicalMemorySize();
+                if (total > 0) return total;
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @return the number of executions waiting to be admitted.
+     */
+    public synchronized int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of executions currently running.
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * @return the combined memory estimate of the executions currently running, in bytes.
+     */
+    public synchronized long getReservedMemory() {
+        return reserved;
+    }
+
+    /**
+     * Estimate the memory needed to count the specified targets.
+     *
+     * @param targets the files and directories counted by a single execution.
+     * @param maxFileSize the size in bytes above which files are skipped by the command.
+     * @param followLinks whether symbolic links to directories are followed.
+     * @return the memory estimate in bytes.
+     */
+    static long estimate(Collection<Path> targets, long maxFileSize, boolean followLinks) {
+        long largest = 0;
+        for (Path target : targets) {
+            largest = Math.max(largest, largest(target, maxFileSize, followLinks));
+            if (largest >= maxFileSize) break;
+        }
+        return BASE_MEMORY + MEMORY_FACTOR * Math.min(largest, maxFileSize);
+    }
+
+    /*
+     * Stops walking as soon as a file at least as large as the maximum file size is found,
+     * since no larger file is counted. Unreadable targets are assumed to contain a file of maximum size.
+     */
+    private static long largest(Path target, long maxFileSize, boolean followLinks) {
+        long[] largest = {0};
+        Set<FileVisitOption> options = followLinks
+                ? EnumSet.of(FileVisitOption.FOLLOW_LINKS)
+                : Collections.emptySet();
+        try {
+            Files.walkFileTree(target, options, Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (!attributes.isRegularFile()) return FileVisitResult.CONTINUE;
+                    largest[0] = Math.max(largest[0], attributes.size());
+                    return largest[0] < maxFileSize ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException ex) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            return largest[0];
+        } catch (IOException ex) {
+            return maxFileSize;
+        }
+    }
+
+    /**
+     * Wait until an execution with the specified memory estimate can be admitted.
+     *
+     * @param memory the memory estimate in bytes.
+     * @return the amount of memory reserved, which must be {@linkplain #release(long) released} once done.
+     * @throws CLOCException if the current thread is interrupted, or the execution is cancelled while waiting.
+     */
+    long acquire(long memory) throws CLOCException {
+        long amount = Math.min(memory, maxMemory);
+        Object ticket = new Object();
+        Cancellation cancellation = Cancellation.current();
+        Runnable unregister = null;
+        synchronized (this) {
+            queue.addLast(ticket);
+        }
+        try {
+            if (cancellation != null) unregister = cancellation.register(this::wakeUp);
+            synchronized (this) {
+                while (queue.peekFirst() != ticket || running >= maxProcesses || amount > maxMemory - reserved) {
+                    if (cancellation != null && cancellation.isCancelled()) {
+                        throw new CLOCException("Execution was cancelled!");
+                    }
+                    wait();
+                }
+                queue.removeFirst();
+                running++;
+                reserved += amount;
+                notifyAll();
+                return amount;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CLOCException(ex);
+        } finally {
+            if (unregister != null) unregister.run();
+            synchronized (this) {
+                if (queue.remove(ticket)) notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @param memory the amount of memory returned by {@link #acquire(long)}.
+     */
+    synchronized void release(long memory) {
+        running--;
+        reserved -= memory;
+        notifyAll();
+    }
+
+    private synchronized void wakeUp() {
+        notifyAll();
+    }
+}
@@ -0,0 +1,130 @@
+package ch.usi.si.seart.cloc;
+
+import org.apache.commons.lang3.SystemUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Extracts bundled scripts to the file system, so that they can be passed to the interpreter.
+ * <p>
+ * Scripts are extracted to a separate subdirectory for each version and checksum,
+ * located in the {@linkplain #root() extraction directory}.
+ * Extraction is performed under a file lock, writing to a temporary file that is then atomically renamed,
+ * so that concurrent processes never observe a partially written script.
+ * A sidecar file records the size and modification time of each extracted script,
+ * so that its checksum only needs to be verified if the script was modified after extraction.
+ */
+final class Scripts {
+
+    static final String PROPERTY = "jcloc.directory";
+
+    private Scripts() {
+    }
+
+    /**
+     * @return the directory specified by the {@value #PROPERTY} system property,
+     * or the {@code .jcloc} directory of the user home if the property is not set.
+     */
+    static Path root() {
+        String property = System.getProperty(PROPERTY);
+        return property != null ? Paths.get(property) : Paths.get(SystemUtils.USER_HOME, ".jcloc");
+    }
+
+    /**
+     * @param root the directory in which the versioned subdirectories are created.
+     * @param url the location of the bundled script.
+     * @param name the file name of the script.
+     * @param version the version of the script, or {@code null} if unknown.
+     * @param md5 the checksum of the script.
+     * @return the extracted script.
+     * @throws IOException if the script could not be extracted.
+     * @throws NoSuchAlgorithmException if the checksum could not be computed.
+     */
+    static File extract(Path root, URL url, String name, String version, String md5)
+            throws IOException, NoSuchAlgorithmException {
+        Path directory = root.resolve((version != null ? version : "unknown") + "-" + md5);
+        Path script = directory.resolve(name);
+        Path sidecar = directory.resolve(name + ".stamp");
+        if (isStamped(script, sidecar)) return script.toFile();
+        // File locks are held on behalf of the whole JVM, so threads must be serialized separately
+        synchronized (Scripts.class) {
+            return extract(url, script, sidecar, md5);
+        }
+    }
+
+    private static File extract(URL url, Path script, Path sidecar, String md5)
+            throws IOException, NoSuchAlgorithmException {
+        Path directory = script.getParent();
+        String name = script.getFileName().toString();
+        Files.createDirectories(directory);
+        Path lock = directory.resolve(name + ".lock");
+        try (FileChannel channel = FileChannel.open(lock, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock exclusive = channel.lock();
+            try {
+                if (isStamped(script, sidecar)) return script.toFile();
+                if (!Files.exists(script) || !MD5.hash(script.toFile()).equals(md5)) {
+                    Path temporary = Files.createTempFile(directory, name, ".tmp");
+                    try {
+                        try (InputStream stream = url.openStream()) {
+                            Files.copy(stream, temporary, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                        if (!temporary.toFile().setExecutable(true)) {
+                            throw new IOException("Unable change execute permissions: " + temporary);
+                        }
+                        move(temporary, script);
+                    } finally {
+                        Files.deleteIfExists(temporary);
+                    }
+                }
+                stamp(script, sidecar);
+            } finally {
+                exclusive.release();
+            }
+        }
+        return script.toFile();
+    }
+
+    private static boolean isStamped(Path script, Path sidecar) {
+        try {
+            String expected = new String(Files.readAllBytes(sidecar), StandardCharsets.UTF_8);
+            return expected.equals(stampOf(script));
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    private static void stamp(Path script, Path sidecar) throws IOException {
+        Path temporary = Files.createTempFile(sidecar.getParent(), sidecar.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, stampOf(script).getBytes(StandardCharsets.UTF_8));
+            move(temporary, sidecar);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String stampOf(Path script) throws IOException {
+        return Files.size(script) + " " + Files.getLastModifiedTime(script).toMillis();
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ch.usi.si.seart.cloc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Splits files into shards of roughly equal total size, counting each shard concurrently with another counter.
+ * Shards are formed greedily, assigning files from largest to smallest to the shard with the least total size.
+ */
+final class ShardedCounter implements FileCounter {
+
+    private final FileCounter counter;
+    private final int shards;
+
+    /**
+     * @param counter the counter used for each shard.
+     * @param shards the maximum number of shards, and therefore concurrent executions.
+     */
+    ShardedCounter(FileCounter counter, int shards) {
+        this.counter = counter;
+        this.shards = shards;
+    }
+
+    @Override
+    public FileCounts count(List<Path> files) throws CLOCException {
+        List<List<Path>> parts = split(files, shards);
+        if (parts.size() < 2) return counter.count(files);
+        ForkJoinPool pool = new ForkJoinPool(parts.size());
+        try {
+            List<Future<FileCounts>> futures = new ArrayList<>(parts.size());
+            for (List<Path> part : parts) futures.add(pool.submit(() -> counter.count(part)));
+            FileCounts result = new FileCounts();
+            for (Future<FileCounts> future : futures) future.get().forEach(result::add);
+            return result;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof CLOCException) throw (CLOCException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new CLOCException(cause);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CLOCException(ex);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Split the files into at most the specified number of non-empty shards, balanced by total file size.
+     *
+     * @param files the files to split.
+     * @param shards the maximum number of shards.
+     * @return the shards, each containing at least one file.
+     */
+    static List<List<Path>> split(List<Path> files, int shards) {
+        int count = Math.min(shards, files.size());
+        List<List<Path>> parts = new ArrayList<>(count);
+        if (count == 0) return parts;
+        long[] sizes = files.parallelStream().mapToLong(ShardedCounter::size).toArray();
+        long[] totals = new long[count];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+                count, Comparator.<Integer>comparingLong(i -> totals[i]).thenComparingInt(i -> i)
+        );
+        for (int i = 0; i < count; i++) {
+            parts.add(new ArrayList<>());
+            queue.add(i);
+        }
+        List<Integer> order = IntStream.range(0, files.size())
+                .boxed()
+                .sorted(Comparator.<Integer>comparingLong(i -> sizes[i]).reversed())
+                .collect(Collectors.toList());
+        for (int i : order) {
+            int shard = queue.poll();
+            parts.get(shard).add(files.get(i));
+            totals[shard] += sizes[i];
+            queue.add(shard);
+        }
+        return parts;
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package ch.usi.si.seart.cloc;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Determines which directories and files are pruned while collecting the target files in Java,
+ * before any of them are handed to the command.
+ */
+final class SourceFilter {
+
+    static final SourceFilter NONE = new SourceFilter(
+            Collections.emptySet(), Collections.emptySet(), Collections.emptySet(), false
+    );
+
+    private final Set<String> excludedDirectories;
+    private final Set<String> includedExtensions;
+    private final Set<String> excludedExtensions;
+    private final boolean gitignore;
+
+    /**
+     * @param excludedDirectories the names of directories that are not descended into.
+     * @param includedExtensions the lowercase extensions of the only files considered, or empty to consider all.
+     * @param excludedExtensions the lowercase extensions of files that are not considered.
+     * @param gitignore whether to prune files and directories excluded by {@code .gitignore} rules.
+     */
+    SourceFilter(
+            Set<String> excludedDirectories,
+            Set<String> includedExtensions,
+            Set<String> excludedExtensions,
+            boolean gitignore
+    ) {
+        this.excludedDirectories = Collections.unmodifiableSet(new HashSet<>(excludedDirectories));
+        this.includedExtensions = Collections.unmodifiableSet(new HashSet<>(includedExtensions));
+        this.excludedExtensions = Collections.unmodifiableSet(new HashSet<>(excludedExtensions));
+        this.gitignore = gitignore;
+    }
+
+    boolean acceptsDirectory(String name) {
+        return !excludedDirectories.contains(name);
+    }
+
+    boolean acceptsFile(String name) {
+        if (includedExtensions.isEmpty() && excludedExtensions.isEmpty()) return true;
+        int dot = name.lastIndexOf('.');
+        String extension = dot >= 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        if (!includedExtensions.isEmpty() && !includedExtensions.contains(extension)) return false;
+        return !excludedExtensions.contains(extension);
+    }
+
+    boolean isGitignoreRespected() {
+        return gitignore;
+    }
+
+    /**
+     * @return whether the filter prunes nothing beyond the version control directories skipped by default.
+     */
+    boolean isEmpty() {
+        return excludedDirectories.isEmpty()
+                && includedExtensions.isEmpty()
+                && excludedExtensions.isEmpty()
+                && !gitignore;
+    }
+}
@@ -0,0 +1,234 @@
+package ch.usi.si.seart.cloc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Discovers the files that {@code cloc} would consider when given a target path,
+ * so that they can be processed in Java before being handed to the command.
+ * Directories are listed in parallel, and those pruned by a {@link SourceFilter} are never descended into.
+ */
+final class SourceWalker {
+
+    /**
+     * Version control and configuration directories that the command never descends into.
+     */
+    private static final Set<String> EXCLUDED = new HashSet<>(
+            Arrays.asList(".bzr", ".config", ".cvs", ".git", ".hg", ".snapshot", ".svn")
+    );
+
+    private SourceWalker() {
+    }
+
+    /**
+     * @param target the target file or directory.
+     * @param followLinks whether to follow symbolic links to directories.
+     * @param noRecurse whether to only consider the files directly contained in the target directory.
+     * @return the absolute, normalized paths of all regular files under the target, in lexicographical order.
+     * @throws UncheckedIOException if the target could not be traversed.
+     */
+    static List<Path> walk(Path target, boolean followLinks, boolean noRecurse) {
+        return walk(target, followLinks, noRecurse, SourceFilter.NONE);
+    }
+
+    /**
+     * @param target the target file or directory.
+     * @param followLinks whether to follow symbolic links to directories.
+     * @param noRecurse whether to only consider the files directly contained in the target directory.
+     * @param filter the filter determining which directories and files are pruned.
+     * @return the absolute, normalized paths of all regular files under the target that were not pruned,
+     * in lexicographical order.
+     * @throws UncheckedIOException if the target could not be traversed.
+     */
+    static List<Path> walk(Path target, boolean followLinks, boolean noRecurse, SourceFilter filter) {
+        return walk(target, followLinks, noRecurse, filter, directory -> {
+        });
+    }
+
+    /**
+     * @param target the target file or directory.
+     * @param followLinks whether to follow symbolic links to directories.
+     * @param noRecurse whether to only consider the files directly contained in the target directory.
+     * @param filter the filter determining which directories and files are pruned.
+     * @param directories the action performed on each visited directory before it is listed,
+     * which may be invoked concurrently.
+     * @return the absolute, normalized paths of all regular files under the target that were not pruned,
+     * in lexicographical order.
+     * @throws UncheckedIOException if the target could not be traversed.
+     */
+    static List<Path> walk(
+            Path target, boolean followLinks, boolean noRecurse, SourceFilter filter, Consumer<Path> directories
+    ) {
+        Path root = target.toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            Path name = root.getFileName();
+            boolean accepted = name == null || filter.acceptsFile(name.toString());
+            return accepted ? Collections.singletonList(root) : Collections.emptyList();
+        }
+        Gitignore ignore = filter.isGitignoreRespected() ? Gitignore.enclosing(root) : null;
+        Visit visit = new Visit(root, null, null, ignore, new Options(followLinks, noRecurse, filter, directories));
+        List<Path> files;
+        try {
+            files = ForkJoinPool.commonPool().invoke(visit);
+        } catch (DirectoryIteratorException ex) {
+            throw new UncheckedIOException(ex.getCause());
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Determine whether a walk of an enclosing directory would descend into the specified directory.
+     *
+     * @param directory an absolute, normalized directory path.
+     * @param followLinks whether to follow symbolic links to directories.
+     * @param filter the filter determining which directories are pruned.
+     * @return {@code true} if the directory is not pruned.
+     */
+    static boolean isVisited(Path directory, boolean followLinks, SourceFilter filter) {
+        Path fileName = directory.getFileName();
+        String name = fileName != null ? fileName.toString() : "";
+        if (!Files.isDirectory(directory)) return false;
+        if (Files.isSymbolicLink(directory) && !followLinks) return false;
+        if (EXCLUDED.contains(name) || !filter.acceptsDirectory(name)) return false;
+        Gitignore rules = filter.isGitignoreRespected() ? Gitignore.enclosing(directory) : null;
+        return rules == null || !rules.isIgnored(directory, true);
+    }
+
+    /**
+     * Determine whether a walk of an enclosing directory would collect the file at the specified path,
+     * without consulting the file system or any {@code .gitignore} rules.
+     *
+     * @param path the path of the file relative to the enclosing directory, using {@code /} as the separator.
+     * @param filter the filter determining which directories and files are pruned.
+     * @return {@code true} if neither the file nor any of its parent directories are pruned.
+     */
+    static boolean isCollected(String path, SourceFilter filter) {
+        String[] names = path.split("/");
+        for (int i = 0; i < names.length - 1; i++) {
+            if (EXCLUDED.contains(names[i]) || !filter.acceptsDirectory(names[i])) return false;
+        }
+        return filter.acceptsFile(names[names.length - 1]);
+    }
+
+    private static final class Options {
+
+        private final boolean followLinks;
+        private final boolean noRecurse;
+        private final SourceFilter filter;
+        private final Consumer<Path> directories;
+
+        private Options(boolean followLinks, boolean noRecurse, SourceFilter filter, Consumer<Path> directories) {
+            this.followLinks = followLinks;
+            this.noRecurse = noRecurse;
+            this.filter = filter;
+            this.directories = directories;
+        }
+    }
+
+    /*
+     * Lists a single directory, forking a separate task for each of its subdirectories.
+     */
+    private static final class Visit extends RecursiveTask<List<Path>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path directory;
+        private final Visit parent;
+        private final Gitignore ignore;
+        private final Options options;
+
+        /*
+         * Identifies the directory when following symbolic links, so that cycles can be detected.
+         */
+        private final Object key;
+
+        private Visit(Path directory, BasicFileAttributes attributes, Visit parent, Gitignore ignore, Options options) {
+            this.directory = directory;
+            this.parent = parent;
+            this.ignore = ignore;
+            this.options = options;
+            this.key = options.followLinks ? key(directory, attributes) : null;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            List<Path> files = new ArrayList<>();
+            List<Visit> visits = new ArrayList<>();
+            options.directories.accept(directory);
+            Gitignore rules = options.filter.isGitignoreRespected() ? Gitignore.read(ignore, directory) : null;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path entry : stream) {
+                    Visit visit = visit(entry, rules, files);
+                    if (visit != null) visits.add(visit);
+                }
+            } catch (IOException ex) {
+                if (parent != null) return files;
+                throw new DirectoryIteratorException(ex);
+            } catch (DirectoryIteratorException ex) {
+                if (parent != null) return files;
+                throw ex;
+            }
+            invokeAll(visits);
+            for (Visit visit : visits) files.addAll(visit.join());
+            return files;
+        }
+
+        private Visit visit(Path entry, Gitignore rules, List<Path> files) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (attributes.isSymbolicLink()) attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+            } catch (IOException ex) {
+                return null;
+            }
+            Path fileName = entry.getFileName();
+            String name = fileName != null ? fileName.toString() : "";
+            if (attributes.isRegularFile()) {
+                boolean ignored = rules != null && rules.isIgnored(entry, false);
+                if (options.filter.acceptsFile(name) && !ignored) files.add(entry);
+                return null;
+            }
+            if (!attributes.isDirectory() || options.noRecurse) return null;
+            if (Files.isSymbolicLink(entry) && !options.followLinks) return null;
+            if (EXCLUDED.contains(name) || !options.filter.acceptsDirectory(name)) return null;
+            if (rules != null && rules.isIgnored(entry, true)) return null;
+            Visit visit = new Visit(entry, attributes, this, rules, options);
+            return options.followLinks && visit.isCycle() ? null : visit;
+        }
+
+        private boolean isCycle() {
+            for (Visit ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+                if (key.equals(ancestor.key)) return true;
+            }
+            return false;
+        }
+
+        private static Object key(Path directory, BasicFileAttributes attributes) {
+            try {
+                BasicFileAttributes actual = attributes != null
+                        ? attributes
+                        : Files.readAttributes(directory, BasicFileAttributes.class);
+                Object key = actual.fileKey();
+                return key != null ? key : directory.toRealPath();
+            } catch (IOException ex) {
+                return directory;
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.codehaus.plexus.util.FileUtils;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A command targeting sources that do not reside on disk, such as file contents held in memory or archive entries.
+ * <p>
+ * Sources are grouped by caller-supplied identifiers, with all sources of the same identifier counted together,
+ * as if they were files of the same directory. Contents are staged into a single scratch tree as soon as they are
+ * added, after which all identifiers are counted in groups of at most the configured batch size, just like a
+ * {@link Batch}. Results are mapped back to the identifiers, with file paths reported relative to each identifier.
+ * The scratch tree is removed once the sources are closed.
+ *
+ * @param <K> the type of source identifiers.
+ * @author Ozren Dabić
+ */
+public final class Sources<K> implements AutoCloseable {
+
+    private final CLOC.Builder builder;
+    private final Path parent;
+    private final int size;
+
+    private final Map<K, Path> directories = new LinkedHashMap<>();
+
+    private Path root;
+    private boolean closed = false;
+
+    Sources(CLOC.Builder builder, Path parent, int size) {
+        this.builder = builder;
+        this.parent = parent;
+        this.size = size;
+    }
+
+    /**
+     * Add a file with the specified contents.
+     *
+     * @param id the identifier the file belongs to, mustn't be {@code null}.
+     * @param name the relative path of the file, from which its language is determined.
+     * @param contents the file contents.
+     * @return this instance.
+     * @throws NullPointerException if any of the arguments is {@code null}.
+     * @throws IllegalArgumentException if the name is not a relative path,
+     * or if a file with the same name has already been added for the same identifier.
+     * @throws UncheckedIOException if the contents could not be staged.
+     * @throws IllegalStateException if the sources have been closed.
+     */
+    @Contract("_, _, _ -> this")
+    public @NotNull Sources<K> add(@NotNull K id, @NotNull String name, @NotNull byte[] contents) {
+        Objects.requireNonNull(contents, "Contents must not be null!");
+        return add(id, name, new ByteArrayInputStream(contents));
+    }
+
+    /**
+     * Add a file with the contents read from the specified stream. The stream is read to the end, but not closed.
+     *
+     * @param id the identifier the file belongs to, mustn't be {@code null}.
+     * @param name the relative path of the file, from which its language is determined.
+     * @param contents the stream of file contents.
+     * @return this instance.
+     * @throws NullPointerException if any of the arguments is {@code null}.
+     * @throws IllegalArgumentException if the name is not a relative path,
+     * or if a file with the same name has already been added for the same identifier.
+     * @throws UncheckedIOException if the contents could not be read or staged.
+     * @throws IllegalStateException if the sources have been closed.
+     */
+    @Contract("_, _, _ -> this")
+    public synchronized @NotNull Sources<K> add(@NotNull K id, @NotNull String name, @NotNull InputStream contents) {
+        Objects.requireNonNull(name, "Name must not be null!");
+        Objects.requireNonNull(contents, "Contents must not be null!");
+        Path directory = directory(id);
+        Path file = Archives.resolve(directory, name);
+        if (file == null) throw new IllegalArgumentException("Invalid file name: " + name);
+        if (Files.exists(file)) throw new IllegalArgumentException("Duplicate file name: " + name);
+        try {
+            Files.createDirectories(file.getParent());
+            Files.copy(contents, file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return this;
+    }
+
+    /**
+     * Add all regular files of the specified archive.
+     * Supported formats are ZIP (including JAR) and TAR, optionally compressed with GZIP.
+     * Entries that would be extracted outside the archive root, as well as links, are skipped.
+     *
+     * @param id the identifier the files belong to, mustn't be {@code null}.
+     * @param archive the path to the archive.
+     * @return this instance.
+     * @throws NullPointerException if any of the arguments is {@code null}.
+     * @throws IllegalArgumentException if the archive format is not supported.
+     * @throws UncheckedIOException if the archive could not be read or its files could not be staged.
+     * @throws IllegalStateException if the sources have been closed.
+     */
+    @Contract("_, _ -> this")
+    public @NotNull Sources<K> addArchive(@NotNull K id, @NotNull Path archive) {
+        Objects.requireNonNull(archive, "Archive must not be null!");
+        try (InputStream stream = Files.newInputStream(archive)) {
+            return addArchive(id, stream);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Add all regular files of the archive read from the specified stream. The stream is not closed.
+     *
+     * @param id the identifier the files belong to, mustn't be {@code null}.
+     * @param archive the stream of archive contents.
+     * @return this instance.
+     * @throws NullPointerException if any of the arguments is {@code null}.
+     * @throws IllegalArgumentException if the archive format is not supported.
+     * @throws UncheckedIOException if the archive could not be read or its files could not be staged.
+     * @throws IllegalStateException if the sources have been closed.
+     * @see #addArchive(Object, Path)
+     */
+    @Contract("_, _ -> this")
+    public synchronized @NotNull Sources<K> addArchive(@NotNull K id, @NotNull InputStream archive) {
+        Objects.requireNonNull(archive, "Archive must not be null!");
+        Path directory = directory(id);
+        try {
+            Archives.extract(archive, directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return this;
+    }
+
+    /**
+     * Count the physical lines of source code, reporting results by identifier.
+     *
+     * @return the report of each identifier, in the order in which the identifiers were first added.
+     * @throws CLOCException if an error occurs while executing the command.
+     * @throws IllegalStateException if the sources have been closed.
+     */
+    public synchronized Map<K, Report> report() throws CLOCException {
+        if (closed) throw new IllegalStateException("Sources have been closed!");
+        Map<Path, Report> reports = new Batch(builder, new ArrayList<>(directories.values()), size).report();
+        Map<K, Report> results = new LinkedHashMap<>();
+        directories.forEach((id, directory) -> results.put(id, relativize(directory, reports.get(directory))));
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Count the physical lines of source code, reporting results by language for each identifier.
+     *
+     * @return A JSON object representation of the output for each identifier.
+     * @throws CLOCException if an error occurs while executing the command.
+     * @see CLOC#linesByLanguage()
+     */
+    public Map<K, ObjectNode> linesByLanguage() throws CLOCException {
+        return map(Report::linesByLanguage);
+    }
+
+    /**
+     * Count the physical lines of source code, reporting results by file for each identifier.
+     *
+     * @return A JSON object representation of the output for each identifier.
+     * @throws CLOCException if an error occurs while executing the command.
+     * @see CLOC#linesByFile()
+     */
+    public Map<K, ObjectNode> linesByFile() throws CLOCException {
+        return map(Report::linesByFile);
+    }
+
+    /**
+     * Count the number of files, reporting results by language for each identifier.
+     *
+     * @return A JSON object representation of the output for each identifier.
+     * @throws CLOCException if an error occurs while executing the command.
+     * @see CLOC#countFiles()
+     */
+    public Map<K, ObjectNode> countFiles() throws CLOCException {
+        return map(Report::countFiles);
+    }
+
+    /**
+     * Remove the scratch tree. Further attempts to add or count sources will fail.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (root == null) return;
+        try {
+            FileUtils.deleteDirectory(root.toFile());
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Map<K, ObjectNode> map(Function<Report, ObjectNode> mapper) throws CLOCException {
+        Map<K, ObjectNode> results = new LinkedHashMap<>();
+        report().forEach((id, report) -> results.put(id, mapper.apply(report)));
+        return Collections.unmodifiableMap(results);
+    }
+
+    private Path directory(K id) {
+        Objects.requireNonNull(id, "Identifier must not be null!");
+        if (closed) throw new IllegalStateException("Sources have been closed!");
+        Path directory = directories.get(id);
+        if (directory != null) return directory;
+        try {
+            if (root == null) {
+                root = parent != null
+                        ? Files.createTempDirectory(parent, "cloc-sources")
+                        : Files.createTempDirectory("cloc-sources");
+            }
+            directory = Files.createDirectory(root.resolve(String.valueOf(directories.size())));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        directories.put(id, directory);
+        return directory;
+    }
+
+    private static Report relativize(Path directory, Report report) {
+        String root = ListFiles.normalize(directory);
+        FileCounts files = new FileCounts();
+        report.getFileCounts().forEach(file -> files.add(
+                relativize(root, file.getPath()),
+                file.getLanguageId(),
+                file.getBlank(),
+                file.getComment(),
+                file.getCode()
+        ));
+        Map<String, String> duplicates = new HashMap<>();
+        report.getDuplicates().forEach((duplicate, original) -> duplicates.put(
+                relativize(root, duplicate), relativize(root, original)
+        ));
+        return new Report(null, files, duplicates);
+    }
+
+    private static String relativize(String root, String path) {
+        String normalizedRoot = root.replace('\\', '/');
+        String normalizedPath = path.replace('\\', '/');
+        if (!normalizedPath.startsWith(normalizedRoot + "/")) return normalizedPath;
+        return normalizedPath.substring(normalizedRoot.length() + 1);
+    }
+}
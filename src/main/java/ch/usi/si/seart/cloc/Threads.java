@@ -0,0 +1,50 @@
+package ch.usi.si.seart.cloc;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread management shared by all asynchronous command executions.
+ */
+final class Threads {
+
+    private Threads() {
+    }
+
+    private static final class DefaultExecutorHolder {
+
+        private static final Executor INSTANCE = newBoundedExecutor(
+                Runtime.getRuntime().availableProcessors(), newThreadFactory("cloc-async")
+        );
+    }
+
+    /**
+     * @return the executor used for asynchronous executions when none is configured.
+     * Its number of threads is bounded by the number of available processors,
+     * and idle threads are released after a minute of inactivity.
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutorHolder.INSTANCE;
+    }
+
+    static Executor newBoundedExecutor(int threads, ThreadFactory factory) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), factory
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    static ThreadFactory newThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,345 @@
+package ch.usi.si.seart.cloc;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the line counts of a directory up to date as its files change.
+ * <p>
+ * After the initial count, the directory and all of its visited subdirectories are watched for changes.
+ * Changes are debounced, so that bursts of events, such as those caused by saving or checking out files,
+ * are handled together. An update is never delayed by more than a second after the first change, even if events
+ * keep arriving. Only the files that were created or modified are counted anew, while the counts of deleted files
+ * are subtracted, so that the time needed to apply an update depends on the number of changed files, rather than
+ * the size of the directory. The directory is counted anew only if events were lost, or if the {@code .gitignore}
+ * rules change while they are respected.
+ * <p>
+ * Files are counted individually, so files with identical contents are never excluded.
+ * Files that fail to be counted are retried with the next update.
+ * How quickly changes are detected depends on the file system and platform.
+ * The watch must be {@linkplain #close() closed} once it is no longer needed.
+ *
+ * @author Ozren Dabić
+ */
+public final class Watch implements AutoCloseable {
+
+    private static final long DEBOUNCE = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_LATENCY = DEBOUNCE * 10;
+
+    private static final String GITIGNORE = ".gitignore";
+
+    private final Path root;
+    private final boolean followLinks;
+    private final boolean noRecurse;
+    private final SourceFilter filter;
+    private final FileCounter counter;
+    private final Consumer<? super Report> listener;
+
+    private final WatchService service;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    private final Set<Path> directories = ConcurrentHashMap.newKeySet();
+
+    private final Set<Path> changed = new LinkedHashSet<>();
+    private final Set<Path> created = new LinkedHashSet<>();
+    private final Set<Path> deleted = new LinkedHashSet<>();
+    private boolean rescan = false;
+
+    private final Map<String, FileCount> files = new LinkedHashMap<>();
+    private LanguageCounts totals = new LanguageCounts();
+    private Report snapshot;
+    private long updates = 0;
+
+    private volatile boolean closed = false;
+
+    Watch(
+            Path directory,
+            boolean followLinks,
+            boolean noRecurse,
+            SourceFilter filter,
+            FileCounter counter,
+            @Nullable Consumer<? super Report> listener
+    ) throws CLOCException {
+        this.root = directory.toAbsolutePath().normalize();
+        this.followLinks = followLinks;
+        this.noRecurse = noRecurse;
+        this.filter = filter;
+        this.counter = counter;
+        this.listener = listener;
+        try {
+            this.service = FileSystems.getDefault().newWatchService();
+        } catch (IOException ex) {
+            throw new CLOCException(ex);
+        }
+        try {
+            replace(null, walk(root, noRecurse));
+        } catch (CLOCException | RuntimeException ex) {
+            closeQuietly();
+            throw ex;
+        }
+        Thread thread = Threads.newThreadFactory("cloc-watch").newThread(this::run);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Obtain the current counts.
+     *
+     * @return the report reflecting all changes applied so far.
+     */
+    public synchronized Report snapshot() {
+        if (snapshot == null) {
+            FileCounts counts = new FileCounts();
+            files.values().forEach(counts::add);
+            snapshot = new Report(null, counts);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Obtain the current counts by language, which are kept up to date without revisiting unchanged files.
+     *
+     * @return a copy of the current line counts, grouped by language.
+     */
+    public synchronized LanguageCounts countLinesByLanguage() {
+        LanguageCounts copy = new LanguageCounts();
+        copy.addAll(totals);
+        return copy;
+    }
+
+    /**
+     * @return the number of updates applied since the initial count.
+     */
+    public synchronized long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Stop watching the directory. Snapshots remain available, but no longer change.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        try {
+            service.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                collect(service.take());
+                long first = System.nanoTime();
+                long deadline = first + DEBOUNCE;
+                for (long remaining = DEBOUNCE; remaining > 0; remaining = deadline - System.nanoTime()) {
+                    WatchKey key = service.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (key == null) break;
+                    collect(key);
+                    long now = System.nanoTime();
+                    deadline = now + Math.min(DEBOUNCE, first + MAX_LATENCY - now);
+                }
+                update();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ignored) {
+        }
+    }
+
+    private void collect(WatchKey key) {
+        Path directory = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            WatchEvent.Kind<?> kind = event.kind();
+            if (kind == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                rescan = true;
+                continue;
+            }
+            Path entry = directory.resolve((Path) event.context());
+            Path name = entry.getFileName();
+            if (filter.isGitignoreRespected() && name != null && name.toString().equals(GITIGNORE)) rescan = true;
+            if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                changed.remove(entry);
+                created.remove(entry);
+                deleted.add(entry);
+            } else if (Files.isDirectory(entry)) {
+                if (kind == StandardWatchEventKinds.ENTRY_CREATE && !noRecurse) created.add(entry);
+            } else {
+                changed.add(entry);
+            }
+        }
+        if (!key.reset()) {
+            keys.remove(key);
+            if (directory != null && !keys.containsValue(directory)) directories.remove(directory);
+        }
+    }
+
+    private void update() {
+        try {
+            if (rescan) {
+                changed.clear();
+                created.clear();
+                deleted.clear();
+                try {
+                    replace(null, walk(root, noRecurse));
+                } catch (CLOCException | RuntimeException ex) {
+                    return;
+                }
+                rescan = false;
+            } else {
+                for (Path entry : deleted) remove(entry);
+                deleted.clear();
+                List<Path> candidates = new ArrayList<>();
+                for (Path directory : created) {
+                    if (!SourceWalker.isVisited(directory, followLinks, filter)) continue;
+                    candidates.addAll(walk(directory, false));
+                }
+                created.clear();
+                candidates.addAll(accepted(changed));
+                Set<Path> pending = new LinkedHashSet<>(changed);
+                changed.clear();
+                try {
+                    replace(pending, candidates);
+                } catch (CLOCException | RuntimeException ex) {
+                    changed.addAll(pending);
+                    changed.addAll(candidates);
+                    return;
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            rescan = true;
+            return;
+        }
+        notifyListener();
+    }
+
+    /*
+     * Determines which of the changed files would be visited by a walk of their directory.
+     * Files in directories that are not watched were either pruned, or deleted in the meantime.
+     */
+    private List<Path> accepted(Set<Path> entries) {
+        Map<Path, List<Path>> byDirectory = new LinkedHashMap<>();
+        for (Path entry : entries) {
+            Path directory = entry.getParent();
+            if (!directories.contains(directory)) continue;
+            byDirectory.computeIfAbsent(directory, ignored -> new ArrayList<>()).add(entry);
+        }
+        List<Path> result = new ArrayList<>();
+        byDirectory.forEach((directory, candidates) -> {
+            Set<Path> listed = new HashSet<>(SourceWalker.walk(directory, followLinks, true, filter));
+            for (Path candidate : candidates) {
+                if (listed.contains(candidate)) result.add(candidate);
+            }
+        });
+        return result;
+    }
+
+    private List<Path> walk(Path directory, boolean shallow) {
+        return SourceWalker.walk(directory, followLinks, shallow, filter, this::register);
+    }
+
+    /*
+     * Directories are registered even if they were registered before,
+     * since they may have been deleted and created anew in the meantime.
+     */
+    private void register(Path directory) {
+        try {
+            WatchKey key = directory.register(
+                    service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+            );
+            keys.put(key, directory);
+            directories.add(directory);
+        } catch (IOException | ClosedWatchServiceException ignored) {
+        }
+    }
+
+    /*
+     * Counts the specified files and replaces their previous counts.
+     * The previous counts of invalidated files that are no longer counted, such as those emptied or excluded, are
+     * removed. Invalidating nothing (null) discards all previous counts.
+     */
+    private void replace(@Nullable Set<Path> invalidated, List<Path> paths) throws CLOCException {
+        FileCounts counts = counter.count(paths);
+        synchronized (this) {
+            if (invalidated == null) {
+                files.clear();
+                totals = new LanguageCounts();
+            } else {
+                invalidated.forEach(this::removeFile);
+                paths.forEach(this::removeFile);
+            }
+            for (FileCount count : counts) {
+                files.put(count.getPath(), count);
+                totals.add(count);
+            }
+            snapshot = null;
+        }
+    }
+
+    /*
+     * Removes the counts of the specified file, or of all files within it, if it was a directory.
+     */
+    private synchronized void remove(Path entry) {
+        String path = ListFiles.normalize(entry);
+        FileCount count = files.remove(path);
+        if (count != null) {
+            subtract(count);
+        } else {
+            Iterator<FileCount> iterator = files.values().iterator();
+            while (iterator.hasNext()) {
+                FileCount next = iterator.next();
+                if (!ListFiles.contains(path, next.getPath())) continue;
+                subtract(next);
+                iterator.remove();
+            }
+        }
+        snapshot = null;
+    }
+
+    private synchronized void removeFile(Path file) {
+        FileCount count = files.remove(ListFiles.normalize(file));
+        if (count != null) subtract(count);
+    }
+
+    private void subtract(FileCount count) {
+        totals.add(count.getLanguageId(), -1, -count.getBlank(), -count.getComment(), -count.getCode());
+    }
+
+    private void notifyListener() {
+        Report report;
+        synchronized (this) {
+            updates++;
+            if (listener == null) return;
+            report = snapshot();
+        }
+        try {
+            listener.accept(report);
+        } catch (RuntimeException ignored) {
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ch.usi.si.seart.cloc;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared daemon scheduler for enforcing timeouts and running periodic maintenance tasks.
+ */
+final class Watchdog {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cloc-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Watchdog() {
+    }
+
+    static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return SCHEDULER.schedule(task, delay, unit);
+    }
+
+    static ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delay, TimeUnit unit) {
+        return SCHEDULER.scheduleWithFixedDelay(task, delay, delay, unit);
+    }
+}
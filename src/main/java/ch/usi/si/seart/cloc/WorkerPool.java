@@ -0,0 +1,477 @@
+package ch.usi.si.seart.cloc;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.jetbrains.annotations.Contract;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A pool of long-lived {@code cloc} worker processes.
+ * <p>
+ * Every worker is a Perl interpreter that compiles the {@code cloc} script once,
+ * and then executes each job it receives in a forked copy of itself.
+ * This removes the interpreter startup and script compilation cost from each command execution,
+ * which dominates the running time when counting many small targets.
+ * Commands executed through a pool accept the same options and produce the same results as regular commands.
+ * <p>
+ * Workers are started on demand, up to the configured maximum,
+ * with the configured minimum number of workers started along with the pool.
+ * Idle workers are evicted after a period of inactivity,
+ * checked for liveness before being reused,
+ * and recycled once they have executed a set number of jobs.
+ * The pool must be {@linkplain #close() closed} once it is no longer needed.
+ * <p>
+ * Workers rely on {@code fork}, so this mode is intended for Unix-like systems.
+ *
+ * @author Ozren Dabić
+ */
+public final class WorkerPool implements Closeable {
+
+    private static final long STARTUP_TIMEOUT = TimeUnit.MINUTES.toMillis(1);
+    private static final long PING_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
+    private final int maxWorkers;
+    private final int minWorkers;
+    private final int maxJobs;
+    private final long idleTimeout;
+    private final long healthCheckInterval;
+
+    private final Semaphore permits;
+    private final Deque<Worker> idle = new ArrayDeque<>();
+    private final Path directory;
+    private final ScheduledFuture<?> reaper;
+
+    private int size = 0;
+    private boolean closed = false;
+
+    private WorkerPool(Builder builder) {
+        this.maxWorkers = builder.maxWorkers;
+        this.minWorkers = builder.minWorkers;
+        this.maxJobs = builder.maxJobs;
+        this.idleTimeout = builder.idleTimeout;
+        this.healthCheckInterval = builder.healthCheckInterval;
+        this.permits = new Semaphore(maxWorkers, true);
+        try {
+            this.directory = Files.createTempDirectory("cloc-workers");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        long period = Math.max(idleTimeout / 2, TimeUnit.SECONDS.toMillis(1));
+        this.reaper = Watchdog.scheduleWithFixedDelay(this::evict, period, TimeUnit.MILLISECONDS);
+        try {
+            for (int i = 0; i < minWorkers; i++) {
+                Worker worker = new Worker();
+                synchronized (this) {
+                    idle.addLast(worker);
+                    size++;
+                }
+            }
+        } catch (CLOCException | RuntimeException ex) {
+            close();
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Obtain a new {@link Builder Builder} for configuring a pool.
+     *
+     * @return a new pool builder instance.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Facilitates the construction of {@link WorkerPool} instances.
+     * Input validations are performed at each build step.
+     */
+    public static final class Builder {
+
+        private int maxWorkers = Runtime.getRuntime().availableProcessors();
+        private int minWorkers = 0;
+        private int maxJobs = 1000;
+        private long idleTimeout = TimeUnit.MINUTES.toMillis(1);
+        private long healthCheckInterval = TimeUnit.SECONDS.toMillis(30);
+
+        private Builder() {
+        }
+
+        /**
+         * Set the maximum number of workers running at the same time.
+         * Jobs submitted while all workers are busy wait for one to become available.
+         * Defaults to the number of available processors.
+         *
+         * @param value the maximum number of workers.
+         * @return this builder instance.
+         * @throws IllegalArgumentException if the value is less than 1.
+         */
+        @Contract(value = "_ -> this")
+        public Builder maxWorkers(int value) {
+            if (value < 1) throw new IllegalArgumentException("Maximum number of workers must be greater than 0!");
+            maxWorkers = value;
+            return this;
+        }
+
+        /**
+         * Set the number of workers that are started along with the pool,
+         * and kept alive regardless of inactivity. Default is 0.
+         *
+         * @param value the minimum number of workers to retain.
+         * @return this builder instance.
+         * @throws IllegalArgumentException if the value is less than 0.
+         */
+        @Contract(value = "_ -> this")
+        public Builder minWorkers(int value) {
+            if (value < 0)
+                throw new IllegalArgumentException("Minimum number of workers must be greater than or equal to 0!");
+            minWorkers = value;
+            return this;
+        }
+
+        /**
+         * Set the number of jobs after which a worker is replaced by a fresh one. Default is 1000.
+         *
+         * @param value the maximum number of jobs executed by a single worker.
+         * @return this builder instance.
+         * @throws IllegalArgumentException if the value is less than 1.
+         */
+        @Contract(value = "_ -> this")
+        public Builder maxJobs(int value) {
+            if (value < 1) throw new IllegalArgumentException("Maximum number of jobs must be greater than 0!");
+            maxJobs = value;
+            return this;
+        }
+
+        /**
+         * Set the period of inactivity after which an idle worker is stopped. Default is 60 seconds.
+         *
+         * @param value the idle timeout in seconds.
+         * @return this builder instance.
+         * @throws IllegalArgumentException if the value is less than 1.
+         */
+        @Contract(value = "_ -> this")
+        public Builder idleTimeout(int value) {
+            if (value < 1) throw new IllegalArgumentException("Idle timeout must be greater than 0!");
+            idleTimeout = TimeUnit.SECONDS.toMillis(value);
+            return this;
+        }
+
+        /**
+         * Set the period of inactivity after which a worker is pinged before being reused. Default is 30 seconds.
+         * Regardless of this setting, workers that are no longer running are never reused.
+         *
+         * @param value the health check interval in seconds, or 0 to check before every job.
+         * @return this builder instance.
+         * @throws IllegalArgumentException if the value is less than 0.
+         */
+        @Contract(value = "_ -> this")
+        public Builder healthCheckInterval(int value) {
+            if (value < 0)
+                throw new IllegalArgumentException("Health check interval must be greater than or equal to 0!");
+            healthCheckInterval = TimeUnit.SECONDS.toMillis(value);
+            return this;
+        }
+
+        /**
+         * Create a new worker pool with the current configuration.
+         *
+         * @return a new worker pool.
+         * @throws IllegalArgumentException if the minimum number of workers exceeds the maximum.
+         * @throws IllegalStateException if the minimum number of workers could not be started.
+         */
+        @Contract("-> new")
+        public WorkerPool build() {
+            if (minWorkers > maxWorkers)
+                throw new IllegalArgumentException("Minimum number of workers must not exceed the maximum!");
+            return new WorkerPool(this);
+        }
+    }
+
+    /**
+     * @return the number of workers currently running, both busy and idle.
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of workers currently waiting for jobs.
+     */
+    public synchronized int getIdle() {
+        return idle.size();
+    }
+
+    /**
+     * Stop all idle workers and prevent further jobs from being submitted.
+     * Workers that are executing a job are stopped as soon as the job completes.
+     */
+    @Override
+    public void close() {
+        List<Worker> workers;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            workers = new ArrayList<>(idle);
+            size -= idle.size();
+            idle.clear();
+        }
+        reaper.cancel(false);
+        workers.forEach(Worker::destroy);
+        try {
+            FileUtils.deleteDirectory(directory.toFile());
+        } catch (IOException ignored) {
+        }
+    }
+
+    <T> T execute(List<String> arguments, int timeout, OutputReader<T> reader, ExecutionEvent event)
+            throws CLOCException {
+        long waiting = System.nanoTime();
+        Worker worker = acquire(event);
+        event.queueTime += System.nanoTime() - waiting - event.spawnTime;
+        boolean healthy = false;
+        File out = null;
+        File err = null;
+        try {
+            out = File.createTempFile("job", ".out", directory.toFile());
+            err = File.createTempFile("job", ".err", directory.toFile());
+            long started = System.nanoTime();
+            int code = worker.run(out, err, arguments, timeout, event);
+            event.wallTime = System.nanoTime() - started;
+            event.exitCode = code;
+            event.stdoutBytes = out.length();
+            event.stderrBytes = err.length();
+            healthy = true;
+            if (code != 0) throw new CLOCException(FileUtils.fileRead(err));
+            try (InputStream stream = Files.newInputStream(out.toPath())) {
+                return reader.read(stream);
+            } catch (IOException ex) {
+                throw new CLOCException("Unexpected output format!", ex);
+            }
+        } catch (IOException ex) {
+            throw new CLOCException(ex);
+        } finally {
+            release(worker, healthy);
+            if (out != null) FileUtils.fileDelete(out.getPath());
+            if (err != null) FileUtils.fileDelete(err.getPath());
+        }
+    }
+
+    private Worker acquire(ExecutionEvent event) throws CLOCException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CLOCException(ex);
+        }
+        try {
+            while (true) {
+                Worker worker;
+                synchronized (this) {
+                    if (closed) throw new IllegalStateException("Worker pool has been closed!");
+                    worker = idle.pollFirst();
+                    if (worker == null) {
+                        size++;
+                        break;
+                    }
+                }
+                if (worker.isHealthy()) {
+                    event.spawnTime = 0;
+                    return worker;
+                }
+                synchronized (this) {
+                    size--;
+                }
+                worker.destroy();
+            }
+            try {
+                long spawned = System.nanoTime();
+                Worker worker = new Worker();
+                event.spawnTime = System.nanoTime() - spawned;
+                return worker;
+            } catch (CLOCException | RuntimeException ex) {
+                synchronized (this) {
+                    size--;
+                }
+                throw ex;
+            }
+        } catch (CLOCException | RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+    }
+
+    private void release(Worker worker, boolean healthy) {
+        boolean retained = false;
+        synchronized (this) {
+            if (healthy && !closed && worker.jobs < maxJobs) {
+                worker.lastUsed = System.currentTimeMillis();
+                idle.addFirst(worker);
+                retained = true;
+            } else {
+                size--;
+            }
+        }
+        if (!retained) worker.destroy();
+        permits.release();
+    }
+
+    private void evict() {
+        List<Worker> evicted = new ArrayList<>();
+        long threshold = System.currentTimeMillis() - idleTimeout;
+        synchronized (this) {
+            while (size > minWorkers && !idle.isEmpty() && idle.peekLast().lastUsed < threshold) {
+                evicted.add(idle.pollLast());
+                size--;
+            }
+        }
+        evicted.forEach(Worker::destroy);
+    }
+
+    @FunctionalInterface
+    interface OutputReader<T> {
+
+        T read(InputStream stream) throws IOException;
+    }
+
+    private final class Worker {
+
+        private final Process process;
+        private final OutputStream input;
+        private final BufferedReader output;
+        private final File errors;
+
+        private int jobs = 0;
+        private long lastUsed = System.currentTimeMillis();
+
+        private Worker() throws CLOCException {
+            String[] command = {
+                "perl", CLOC.getWorker().getAbsolutePath(), CLOC.getExecutable().getAbsolutePath()
+            };
+            try {
+                errors = File.createTempFile("cloc-worker", ".err");
+            } catch (IOException ex) {
+                throw new CLOCException(ex);
+            }
+            try {
+                process = Processes.start(command, errors);
+            } catch (IOException ex) {
+                FileUtils.fileDelete(errors.getPath());
+                throw new CLOCException(ex.getMessage(), ex);
+            }
+            input = process.getOutputStream();
+            output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+            String line = readLine(STARTUP_TIMEOUT);
+            if (!"ready".equals(line)) {
+                String message = "Unable to start worker: " + readErrors();
+                destroy();
+                throw new CLOCException(message);
+            }
+        }
+
+        private boolean isHealthy() {
+            if (!process.isAlive()) return false;
+            if (System.currentTimeMillis() - lastUsed < healthCheckInterval) return true;
+            try {
+                send("ping");
+                return "pong".equals(readLine(PING_TIMEOUT));
+            } catch (IOException ex) {
+                return false;
+            }
+        }
+
+        private int run(File out, File err, List<String> arguments, int timeout, ExecutionEvent event)
+                throws IOException, CLOCException {
+            List<String> fields = new ArrayList<>(arguments.size() + 3);
+            fields.add("run");
+            fields.add(out.getAbsolutePath());
+            fields.add(err.getAbsolutePath());
+            fields.addAll(arguments);
+            jobs++;
+            send(fields.toArray(new String[0]));
+            AtomicBoolean killed = new AtomicBoolean(false);
+            Runnable kill = () -> {
+                killed.set(true);
+                process.destroy();
+            };
+            ScheduledFuture<?> watchdog = timeout > 0 ? Watchdog.schedule(kill, timeout, TimeUnit.SECONDS) : null;
+            AtomicBoolean cancelled = new AtomicBoolean(false);
+            Cancellation cancellation = Cancellation.current();
+            Runnable unregister = cancellation != null ? cancellation.register(() -> {
+                cancelled.set(true);
+                process.destroy();
+            }) : null;
+            String line;
+            try {
+                line = output.readLine();
+            } catch (IOException ex) {
+                line = null;
+            } finally {
+                if (watchdog != null) watchdog.cancel(false);
+                if (unregister != null) unregister.run();
+            }
+            if (cancelled.get()) throw new CLOCException("Execution was cancelled!");
+            event.timedOut = killed.get();
+            if (event.timedOut) throw new CLOCException("Process timed out after " + timeout + " seconds!");
+            if (line == null) throw new CLOCException("Worker terminated unexpectedly: " + readErrors());
+            try {
+                int code = Integer.parseInt(line.trim());
+                if (code < 0) throw new CLOCException("Worker was unable to execute the job!");
+                return code;
+            } catch (NumberFormatException ex) {
+                throw new CLOCException("Unexpected worker response: " + line);
+            }
+        }
+
+        private void send(String... fields) throws IOException {
+            String request = String.join("\0", fields) + "\0\0";
+            input.write(request.getBytes(ListFiles.CHARSET));
+            input.flush();
+        }
+
+        private String readLine(long timeout) {
+            ScheduledFuture<?> watchdog = Watchdog.schedule(process::destroy, timeout, TimeUnit.MILLISECONDS);
+            try {
+                return output.readLine();
+            } catch (IOException ex) {
+                return null;
+            } finally {
+                watchdog.cancel(false);
+            }
+        }
+
+        private String readErrors() {
+            try {
+                return FileUtils.fileRead(errors);
+            } catch (IOException ex) {
+                return "";
+            }
+        }
+
+        private void destroy() {
+            try {
+                input.close();
+            } catch (IOException ignored) {
+            }
+            process.destroy();
+            FileUtils.fileDelete(errors.getPath());
+        }
+    }
+}
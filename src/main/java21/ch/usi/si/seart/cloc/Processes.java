@@ -0,0 +1,59 @@
+package ch.usi.si.seart.cloc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Starts command processes and waits for them to exit.
+ * <p>
+ * Processes are started through {@link ProcessBuilder}, with their error stream redirected to a file.
+ * No thread is therefore needed to drain it, while the output stream is left to be consumed by the caller.
+ * On virtual threads, exits are awaited through {@link Process#onExit()}, which parks the thread instead of pinning
+ * its carrier. Platform threads wait as usual, since the pools running them may consider threads parked on a future
+ * to be idle.
+ */
+final class Processes {
+
+    private Processes() {
+    }
+
+    /**
+     * @param command the command line to execute.
+     * @param errors the file to which the error stream of the process is written.
+     * @return the started process.
+     * @throws IOException if the process could not be started.
+     */
+    static Process start(String[] command, File errors) throws IOException {
+        return start(command, null, errors);
+    }
+
+    /**
+     * @param command the command line to execute.
+     * @param directory the working directory of the process, or {@code null} to inherit that of the JVM.
+     * @param errors the file to which the error stream of the process is written.
+     * @return the started process.
+     * @throws IOException if the process could not be started.
+     */
+    static Process start(String[] command, File directory, File errors) throws IOException {
+        return new ProcessBuilder(Arrays.asList(command))
+                .directory(directory)
+                .redirectError(ProcessBuilder.Redirect.to(errors))
+                .start();
+    }
+
+    /**
+     * @param process the process to wait for.
+     * @return the exit code of the process.
+     * @throws InterruptedException if the current thread is interrupted while waiting.
+     */
+    static int waitFor(Process process) throws InterruptedException {
+        if (!Thread.currentThread().isVirtual()) return process.waitFor();
+        try {
+            return process.onExit().get().exitValue();
+        } catch (ExecutionException ex) {
+            return process.waitFor();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ch.usi.si.seart.cloc;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread management shared by all asynchronous command executions.
+ * Each execution runs on a virtual thread of its own,
+ * so executions waiting for a process to exit do not occupy a platform thread.
+ */
+final class Threads {
+
+    private Threads() {
+    }
+
+    private static final class DefaultExecutorHolder {
+
+        private static final Executor INSTANCE = newBoundedExecutor(
+                Runtime.getRuntime().availableProcessors(), newThreadFactory("cloc-async")
+        );
+    }
+
+    /**
+     * @return the executor used for asynchronous executions when none is configured.
+     * The number of executions running at the same time is bounded by the number of available processors.
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutorHolder.INSTANCE;
+    }
+
+    /*
+     * Tasks beyond the bound are queued, and only started on a thread of their own once a running task completes.
+     * The number of threads alive at any time is therefore bounded, not just the number of tasks running.
+     */
+    static Executor newBoundedExecutor(int threads, ThreadFactory factory) {
+        return new BoundedExecutor(threads, factory);
+    }
+
+    static ThreadFactory newThreadFactory(String prefix) {
+        return Thread.ofVirtual().name(prefix + "-", 1).factory();
+    }
+
+    private static final class BoundedExecutor implements Executor {
+
+        private final Lock lock = new ReentrantLock();
+        private final Queue<Runnable> queued = new ArrayDeque<>();
+        private final int threads;
+        private final ThreadFactory factory;
+        private int running;
+
+        private BoundedExecutor(int threads, ThreadFactory factory) {
+            this.threads = threads;
+            this.factory = factory;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            Objects.requireNonNull(task);
+            lock.lock();
+            try {
+                if (running == threads) {
+                    queued.add(task);
+                    return;
+                }
+                running++;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                factory.newThread(() -> run(task)).start();
+            } catch (RuntimeException | Error ex) {
+                run(next());
+                throw ex;
+            }
+        }
+
+        /*
+         * Queued tasks that no thread could be started for run on the current thread instead,
+         * so that none of them are dropped and a slot is only released once the queue is empty.
+         */
+        private void run(Runnable first) {
+            for (Runnable task = first; task != null; task = next()) {
+                try {
+                    task.run();
+                } catch (RuntimeException | Error ex) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+                }
+            }
+        }
+
+        /*
+         * Hands the slot of a completed task over to the next queued task, if any.
+         * Returns that task if its thread could not be started.
+         */
+        private Runnable next() {
+            Runnable task;
+            lock.lock();
+            try {
+                task = queued.poll();
+                if (task == null) running--;
+            } finally {
+                lock.unlock();
+            }
+            if (task == null) return null;
+            try {
+                factory.newThread(() -> run(task)).start();
+                return null;
+            } catch (RuntimeException | Error ex) {
+                return task;
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+#!/usr/bin/env perl
+#
+# Long-lived cloc worker.
+#
+# Compiles the cloc script passed as the first argument exactly once,
+# and then serves jobs read from standard input, each in a forked child.
+# Forking gives every job a pristine copy of the interpreter state,
+# without paying the compilation and initialisation cost again.
+#
+# Requests are NUL-separated fields, terminated by two NUL characters:
+#
+#   run <stdout file> <stderr file> <argument>...
+#   ping
+#
+# Each request is answered with a single line on standard output:
+# the exit status of the job for `run`, and `pong` for `ping`.
+# Once the script has been compiled, the worker announces itself with `ready`.
+
+use strict;
+use warnings;
+use File::Spec;
+use POSIX ();
+
+my $script = shift @ARGV or die "Usage: $0 <script>\n";
+
+my $source = do {
+    open my $handle, '<', $script or die "Unable to read $script: $!\n";
+    local $/;
+    <$handle>;
+};
+
+# The script embeds modules in heredocs, which contain markers of their own,
+# so only the last marker is the one that actually ends the script.
+my $end;
+$end = $-[0] while $source =~ /^__(?:END|DATA)__\b/mg;
+substr($source, $end) = '' if defined $end;
+
+{
+    no strict;
+    no warnings;
+    # The script enables warnings itself, and its file-scoped lexicals
+    # are reported as not staying shared once wrapped in a subroutine.
+    local $SIG{__WARN__} = sub { warn @_ unless $_[0] =~ /will not stay shared/ };
+    # A named sub is used instead of an anonymous one, so that file-scoped
+    # lexicals of the script stay shared with its subroutines on the first
+    # (and in every child, only) invocation.
+    eval "package main; sub cloc_main {\n#line 1 \"$script\"\n$source\n;}\n1;" or die $@;
+}
+
+my $child;
+$SIG{TERM} = $SIG{INT} = sub {
+    kill 'KILL', $child if $child;
+    POSIX::_exit(143);
+};
+
+$| = 1;
+print "ready\n";
+
+local $/ = "\0\0";
+while (defined(my $request = <STDIN>)) {
+    chomp $request;
+    my ($command, @fields) = split /\0/, $request;
+    next unless defined $command;
+    if ($command eq 'ping') {
+        print "pong\n";
+        next;
+    }
+    if ($command ne 'run' || @fields < 2) {
+        print "-1\n";
+        next;
+    }
+    my ($stdout, $stderr, @arguments) = @fields;
+    my $pid = fork;
+    unless (defined $pid) {
+        print "-1\n";
+        next;
+    }
+    if ($pid == 0) {
+        $SIG{TERM} = $SIG{INT} = 'DEFAULT';
+        $/ = "\n";
+        open STDIN, '<', File::Spec->devnull or POSIX::_exit(126);
+        open STDOUT, '>', $stdout or POSIX::_exit(126);
+        open STDERR, '>', $stderr or POSIX::_exit(126);
+        $0 = $script;
+        @ARGV = @arguments;
+        main::cloc_main();
+        exit 0;
+    }
+    $child = $pid;
+    waitpid $pid, 0;
+    $child = undef;
+    my $status = $? & 127 ? 128 + ($? & 127) : $? >> 8;
+    print "$status\n";
+}
@@ -0,0 +1,102 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+class BatchTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path empty;
+
+    @TempDir
+    Path duplicates;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSameResults() throws CLOCException, IOException {
+        Files.copy(RESOURCES.resolve("Main.java"), duplicates.resolve("A.java"));
+        Files.copy(RESOURCES.resolve("Main.java"), duplicates.resolve("B.java"));
+        List<Path> targets = Arrays.asList(RESOURCES, empty, duplicates, RESOURCES.resolve("Main.py"));
+        Map<Path, ObjectNode> results = CLOC.command()
+                .batchSize(2)
+                .targets(targets)
+                .linesByLanguage();
+        Assertions.assertEquals(targets.size(), results.size());
+        for (Path target : targets) {
+            JsonNode expected = CLOC.command().target(target).linesByLanguage();
+            JsonNode actual = results.get(target);
+            Assertions.assertEquals(expected.size(), actual.size());
+            Assertions.assertEquals(expected.get("SUM"), actual.get("SUM"));
+        }
+    }
+
+    @Test
+    void testReport() throws CLOCException {
+        Map<Path, Report> results = CLOC.command()
+                .targets(Collections.singletonList(RESOURCES))
+                .report();
+        Report report = results.get(RESOURCES);
+        Assertions.assertEquals(CLOC.command().target(RESOURCES).countLinesByLanguage(), report.getLanguageCounts());
+    }
+
+    @Test
+    void testFilter() throws CLOCException, IOException {
+        Files.createDirectory(duplicates.resolve("build"));
+        Files.copy(RESOURCES.resolve("Main.java"), duplicates.resolve("A.java"));
+        Files.copy(RESOURCES.resolve("Main.cpp"), duplicates.resolve("build").resolve("A.cpp"));
+        Files.copy(RESOURCES.resolve("Main.py"), duplicates.resolve("A.py"));
+        CLOC.Builder builder = CLOC.command().excludeDirs("build").excludeExtensions("py");
+        List<Path> targets = Arrays.asList(RESOURCES, empty, duplicates);
+        Map<Path, Report> results = builder.targets(targets).report();
+        for (Path target : targets) {
+            LanguageCounts expected = builder.target(target).countLinesByLanguage();
+            Assertions.assertEquals(expected, results.get(target).getLanguageCounts());
+        }
+        LanguageCounts filtered = results.get(duplicates).getLanguageCounts();
+        Assertions.assertEquals(Collections.singleton("Java"), filtered.getLanguages());
+    }
+
+    @Test
+    void testCollected() throws CLOCException, IOException {
+        Files.copy(RESOURCES.resolve("Main.java"), duplicates.resolve("A.java"));
+        Files.copy(RESOURCES.resolve("Main.java"), duplicates.resolve("B.java"));
+        Files.copy(RESOURCES.resolve("Main.py"), duplicates.resolve("A.py"));
+        List<Path> targets = Arrays.asList(RESOURCES, empty, duplicates);
+        ResultCache cache = ResultCache.open(directory, 100);
+        CLOC.Builder builder = CLOC.command().javaEngine(true).shards(2).cache(cache);
+        Map<Path, Report> results = builder.targets(targets).report();
+        for (Path target : targets) {
+            Report expected = CLOC.command().target(target).report();
+            Report actual = results.get(target);
+            Assertions.assertEquals(expected.getLanguageCounts(), actual.getLanguageCounts());
+            Assertions.assertEquals(expected.getFileCounts().size(), actual.getFileCounts().size());
+        }
+        Assertions.assertEquals(2, results.get(duplicates).getLanguageCounts().getFiles());
+        Assertions.assertTrue(cache.size() > 0);
+    }
+
+    @Test
+    void testTargetNotExists() {
+        Path invalid = RESOURCES.resolve("nonexistant");
+        CLOC.Builder builder = CLOC.command();
+        List<Path> targets = Arrays.asList(RESOURCES, invalid);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.targets(targets));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.batchSize(0));
+    }
+}
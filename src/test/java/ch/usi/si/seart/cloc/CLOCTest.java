@@ -12,6 +12,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 class CLOCTest {
@@ -80,6 +81,71 @@ class CLOCTest {
         Assertions.assertEquals(files.size() + 2, result.size());
     }
 
+    @Test
+    void testCountLinesByLanguage() throws CLOCException {
+        CLOC command = CLOC.command().target(RESOURCES);
+        JsonNode expected = command.linesByLanguage();
+        LanguageCounts actual = command.countLinesByLanguage();
+        Assertions.assertEquals(expected.size() - 2, actual.getLanguages().size());
+        for (String language : actual.getLanguages()) {
+            JsonNode counts = expected.get(language);
+            Assertions.assertEquals(counts.get("nFiles").asInt(), actual.getFiles(language));
+            Assertions.assertEquals(counts.get("blank").asLong(), actual.getBlank(language));
+            Assertions.assertEquals(counts.get("comment").asLong(), actual.getComment(language));
+            Assertions.assertEquals(counts.get("code").asLong(), actual.getCode(language));
+        }
+        JsonNode sum = expected.get("SUM");
+        Assertions.assertEquals(sum.get("code").asLong(), actual.getCode());
+    }
+
+    @Test
+    void testCountLinesByFile() throws CLOCException, IOException {
+        CLOC command = CLOC.command().target(RESOURCES);
+        JsonNode expected = command.linesByFile();
+        FileCounts actual = command.countLinesByFile();
+        List<File> files = FileUtils.getFiles(RESOURCES.toFile(), null, null);
+        Assertions.assertEquals(files.size(), actual.size());
+        for (FileCount count : actual) {
+            JsonNode counts = expected.get(count.getPath());
+            Assertions.assertNotNull(counts);
+            Assertions.assertEquals(counts.get("language").asText(), count.getLanguage());
+            Assertions.assertEquals(counts.get("code").asInt(), count.getCode());
+        }
+        Assertions.assertEquals(command.countLinesByLanguage(), actual.getLanguageCounts());
+    }
+
+    @Test
+    void testLinesByFileAction() throws CLOCException {
+        CLOC command = CLOC.command().target(RESOURCES);
+        List<FileCount> visited = new ArrayList<>();
+        LanguageCounts totals = command.linesByFile(visited::add);
+        Assertions.assertEquals(command.countLinesByFile().size(), visited.size());
+        Assertions.assertEquals(command.countLinesByLanguage(), totals);
+    }
+
+    @Test
+    void testReport() throws CLOCException {
+        CLOC command = CLOC.command().target(RESOURCES);
+        Report report = command.report();
+        Assertions.assertEquals(command.countLinesByLanguage(), report.getLanguageCounts());
+        Assertions.assertEquals(command.countLinesByFile().size(), report.getFileCounts().size());
+        JsonNode expected = command.linesByLanguage();
+        JsonNode actual = report.linesByLanguage();
+        Assertions.assertEquals(expected.size(), actual.size());
+        Assertions.assertEquals(expected.get("SUM"), actual.get("SUM"));
+        Assertions.assertEquals(command.linesByFile().size(), report.linesByFile().size());
+        Assertions.assertEquals(command.countFiles().size(), report.countFiles().size());
+    }
+
+    @Test
+    void testReportEmptyDirectory() throws CLOCException {
+        Report report = CLOC.command().target(empty).report();
+        Assertions.assertTrue(report.getFileCounts().isEmpty());
+        Assertions.assertTrue(report.linesByLanguage().isEmpty());
+        Assertions.assertTrue(report.linesByFile().isEmpty());
+        Assertions.assertTrue(report.countFiles().isEmpty());
+    }
+
     @Test
     void testGetURL() {
         String url = CLOC.getURL();
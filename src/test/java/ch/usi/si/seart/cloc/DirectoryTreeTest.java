@@ -0,0 +1,142 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+class DirectoryTreeTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path target;
+
+    private static FileCounts files(Object... rows) {
+        FileCounts files = new FileCounts();
+        for (int i = 0; i < rows.length; i += 3) {
+            int code = (Integer) rows[i + 2];
+            files.add((String) rows[i], Languages.id((String) rows[i + 1]), 1, 2, code);
+        }
+        return files;
+    }
+
+    @Test
+    void testCounts() {
+        DirectoryTree tree = DirectoryTree.of(files(
+                "a/b/Main.java", "Java", 10,
+                "a/b/c/Util.java", "Java", 20,
+                "a/main.py", "Python", 5,
+                "d\\Main.cpp", "C++", 7,
+                "./README.md", "Markdown", 3
+        ));
+        LanguageCounts a = tree.getCounts("a");
+        Assertions.assertEquals(3, a.getFiles());
+        Assertions.assertEquals(35, a.getCode());
+        Assertions.assertEquals(30, a.getCode("Java"));
+        Assertions.assertEquals(5, a.getCode("Python"));
+        Assertions.assertEquals(a, tree.getCounts("./a/"));
+        Assertions.assertEquals(20, tree.getCounts("a/b/c").getCode());
+        Assertions.assertEquals(7, tree.getCounts("d").getCode("C++"));
+        Assertions.assertEquals(45, tree.getCounts("").getCode());
+        Assertions.assertEquals(10, tree.getCounts("").getComment());
+        Assertions.assertEquals(0, tree.getCounts("a/b/Main.java").getFiles());
+        Assertions.assertEquals(0, tree.getCounts("missing").getFiles());
+        Assertions.assertEquals(Collections.singleton("a/b"), tree.getSubdirectories("a").keySet());
+        Assertions.assertEquals(
+                new LinkedHashSet<>(Arrays.asList("a", "d")),
+                tree.getDirectories(1).keySet()
+        );
+        Assertions.assertEquals(
+                new LinkedHashSet<>(Arrays.asList("a/b/c")),
+                tree.getDirectories(3).keySet()
+        );
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tree.getDirectories(-1));
+    }
+
+    @Test
+    void testLargestDirectories() {
+        DirectoryTree tree = DirectoryTree.of(files(
+                "x/a/A.java", "Java", 10,
+                "x/b/B.java", "Java", 30,
+                "x/c/C.java", "Java", 20,
+                "y/d/D.java", "Java", 20,
+                "y/e/E.java", "Java", 5
+        ));
+        Map<String, LanguageCounts> largest = tree.getLargestDirectories(2, 3);
+        Assertions.assertEquals(Arrays.asList("x/b", "x/c", "y/d"), new ArrayList<>(largest.keySet()));
+        Assertions.assertEquals(30, largest.get("x/b").getCode());
+        Assertions.assertEquals(Collections.singleton("x"), tree.getLargestDirectories(1, 1).keySet());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tree.getLargestDirectories(1, 0));
+    }
+
+    @Test
+    void testAbsolutePaths() {
+        DirectoryTree tree = DirectoryTree.of(files(
+                "/repo/src/Main.java", "Java", 10,
+                "/repo/test/MainTest.java", "Java", 4
+        ));
+        Assertions.assertEquals(14, tree.getCounts("/repo").getCode());
+        Assertions.assertEquals(Collections.singleton("/"), tree.getDirectories(1).keySet());
+        Assertions.assertEquals(
+                new LinkedHashSet<>(Arrays.asList("/repo/src", "/repo/test")),
+                tree.getSubdirectories("/repo").keySet()
+        );
+    }
+
+    @Test
+    void testMergeAndSubtract() {
+        DirectoryTree before = DirectoryTree.of(files(
+                "a/A.java", "Java", 10,
+                "b/B.java", "Java", 20,
+                "c/C.py", "Python", 5
+        ));
+        DirectoryTree after = DirectoryTree.of(files(
+                "a/A.java", "Java", 15,
+                "b/B.java", "Java", 20,
+                "d/D.java", "Java", 8
+        ));
+        DirectoryTree delta = after.subtract(before);
+        Assertions.assertEquals(5, delta.getCounts("a").getCode());
+        Assertions.assertEquals(0, delta.getCounts("a").getFiles());
+        Assertions.assertEquals(Collections.singleton("Java"), delta.getCounts("a").getLanguages());
+        Assertions.assertEquals(-5, delta.getCounts("c").getCode("Python"));
+        Assertions.assertEquals(-1, delta.getCounts("c").getFiles());
+        Assertions.assertEquals(8, delta.getCounts("d").getCode());
+        Assertions.assertFalse(delta.getSubdirectories("").containsKey("b"));
+        Assertions.assertEquals(after, before.merge(delta));
+        Assertions.assertEquals(DirectoryTree.of(new FileCounts()), after.subtract(after));
+        DirectoryTree merged = before.merge(after);
+        Assertions.assertEquals(25, merged.getCounts("a").getCode());
+        Assertions.assertEquals(2, merged.getCounts("a").getFiles());
+        Assertions.assertEquals(10, before.getCounts("a").getCode());
+    }
+
+    @Test
+    void testReport() throws CLOCException, IOException {
+        Path directory = Files.createDirectories(target.resolve("src"));
+        for (String name : Arrays.asList("Main.java", "Main.py", "Main.cpp")) {
+            Files.copy(RESOURCES.resolve(name), directory.resolve(name));
+        }
+        CLOC cloc = CLOC.command().target(target);
+        ObjectNode output = cloc.linesByFile();
+        Report report = cloc.report();
+        DirectoryTree tree = DirectoryTree.of(output);
+        Assertions.assertEquals(report.getDirectoryTree(), tree);
+        Assertions.assertEquals(report.getLanguageCounts(), tree.getCounts(""));
+        Assertions.assertEquals(
+                report.getLanguageCounts(),
+                tree.getCounts(ListFiles.normalize(directory))
+        );
+    }
+}
@@ -0,0 +1,108 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+class DuplicatesTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path target;
+
+    @Test
+    void testFind() throws IOException {
+        byte[] large = new byte[200_000];
+        Arrays.fill(large, (byte) 'x');
+        byte[] different = large.clone();
+        different[different.length - 1] = 'y';
+        write("a/Large.txt", large);
+        write("b/Large.txt", different);
+        write("c/Large.txt", large);
+        write("Same.txt", "abc".getBytes(StandardCharsets.UTF_8));
+        write("Size.txt", "abd".getBytes(StandardCharsets.UTF_8));
+        write("Unique.txt", "abcd".getBytes(StandardCharsets.UTF_8));
+        write("z/Same.txt", "abc".getBytes(StandardCharsets.UTF_8));
+        write("z/Empty.txt", new byte[0]);
+        write("Empty.txt", new byte[0]);
+        List<String> paths = Files.walk(target)
+                .filter(Files::isRegularFile)
+                .map(ListFiles::normalize)
+                .collect(Collectors.toList());
+        paths.add(ListFiles.normalize(target.resolve("Missing.txt")));
+        Map<String, String> expected = new HashMap<>();
+        expected.put(path("a/Large.txt"), path("c/Large.txt"));
+        expected.put(path("Same.txt"), path("z/Same.txt"));
+        Assertions.assertEquals(expected, Duplicates.find(paths));
+    }
+
+    @Test
+    void testSameFilesAsCommand() throws CLOCException, IOException {
+        byte[] code = "int a;\n".getBytes(StandardCharsets.UTF_8);
+        write("a.bak", code);
+        write("b.java", code);
+        write("c.c", code);
+        write("d.bak", code);
+        write("lib/Main.py", "x = 1\n".getBytes(StandardCharsets.UTF_8));
+        write("src/Main.py", "x = 1\n".getBytes(StandardCharsets.UTF_8));
+        write("src/Main.py.bak", "x = 1\n".getBytes(StandardCharsets.UTF_8));
+        for (String directory : Arrays.asList("", "lib/", "src/")) write(directory + "__init__.py", new byte[0]);
+        ObjectNode expected = CLOC.command().target(target).linesByFile();
+        expected.remove("header");
+        for (CLOC.Builder builder : Arrays.asList(CLOC.command().javaUniqueness(true), CLOC.command().shards(2))) {
+            Report report = builder.target(target).report();
+            ObjectNode actual = report.linesByFile();
+            actual.remove("header");
+            Assertions.assertEquals(expected, actual);
+            Assertions.assertEquals(path("c.c"), report.getDuplicates().get(path("b.java")));
+            Assertions.assertEquals(path("src/Main.py"), report.getDuplicates().get(path("lib/Main.py")));
+            Assertions.assertEquals(2, report.getDuplicates().size());
+        }
+        ObjectNode batch = CLOC.command().targets(Collections.singletonList(target)).linesByFile().get(target);
+        batch.remove("header");
+        Assertions.assertEquals(expected, batch);
+    }
+
+    @Test
+    void testJavaUniqueness() throws CLOCException, IOException {
+        for (String name : Arrays.asList("Main.java", "Main.py")) {
+            Files.copy(RESOURCES.resolve(name), target.resolve(name));
+            Files.copy(RESOURCES.resolve(name), target.resolve("Copy" + name));
+        }
+        ObjectNode expected = CLOC.command().target(target).linesByLanguage();
+        Report report = CLOC.command().javaUniqueness(true).target(target).report();
+        ObjectNode actual = report.linesByLanguage();
+        expected.remove("header");
+        actual.remove("header");
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(2, report.getDuplicates().size());
+        Assertions.assertEquals(path("Main.java"), report.getDuplicates().get(path("CopyMain.java")));
+        Report skipped = CLOC.command().javaUniqueness(true).skipUniqueness(true).target(target).report();
+        Assertions.assertTrue(skipped.getDuplicates().isEmpty());
+        Assertions.assertEquals(4, skipped.getFileCounts().size());
+    }
+
+    private void write(String path, byte[] bytes) throws IOException {
+        Path file = target.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes);
+    }
+
+    private String path(String path) {
+        return ListFiles.normalize(target.resolve(path));
+    }
+}
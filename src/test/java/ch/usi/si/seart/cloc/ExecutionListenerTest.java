@@ -0,0 +1,92 @@
+package ch.usi.si.seart.cloc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+class ExecutionListenerTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path target;
+
+    private final List<ExecutionEvent> events = new CopyOnWriteArrayList<>();
+
+    private final ExecutionMetrics metrics = new ExecutionMetrics();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.copy(RESOURCES.resolve("Main.java"), target.resolve("Main.java"));
+        Files.copy(RESOURCES.resolve("Main.py"), target.resolve("Main.py"));
+        String path = target.toFile().getAbsolutePath();
+        CLOC.setExecutionListener(event -> {
+            // Other tests may run concurrently, so only events concerning this target are considered
+            if (!event.getCommand().contains(path)) return;
+            events.add(event);
+            metrics.executed(event);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        CLOC.setExecutionListener(null);
+    }
+
+    @Test
+    void testSuccessfulExecution() throws CLOCException {
+        CLOC.command().target(target).linesByLanguage();
+        Assertions.assertEquals(1, events.size());
+        ExecutionEvent event = events.get(0);
+        Assertions.assertTrue(event.isSuccessful());
+        Assertions.assertFalse(event.isTimedOut());
+        Assertions.assertFalse(event.isPooled());
+        Assertions.assertEquals(0, event.getExitCode());
+        Assertions.assertEquals(2, event.getResultSize());
+        Assertions.assertTrue(event.getStdoutBytes() > 0);
+        Assertions.assertFalse(event.getSpawnTime().isNegative());
+        Assertions.assertFalse(event.getWallTime().isNegative());
+        Assertions.assertFalse(event.getParseTime().isNegative());
+    }
+
+    @Test
+    void testAsyncExecution() {
+        CLOC.command().target(target).linesByFileAsync().join();
+        Assertions.assertEquals(1, events.size());
+        ExecutionEvent event = events.get(0);
+        Assertions.assertEquals(2, event.getResultSize());
+        Assertions.assertFalse(event.getQueueTime().isNegative());
+    }
+
+    @Test
+    void testMetrics() throws CLOCException {
+        CLOC command = CLOC.command().target(target);
+        for (int i = 0; i < 3; i++) command.countLinesByLanguage();
+        Assertions.assertEquals(3, metrics.getExecutions());
+        Assertions.assertEquals(0, metrics.getFailures());
+        Assertions.assertEquals(3, metrics.getWallTime().getCount());
+        Assertions.assertTrue(metrics.getWallTime().getMin() <= metrics.getWallTime().getPercentile(0.5));
+        Assertions.assertTrue(metrics.getWallTime().getPercentile(0.5) <= metrics.getWallTime().getMax());
+        Assertions.assertTrue(metrics.getStdoutBytes() > 0);
+        metrics.reset();
+        Assertions.assertEquals(0, metrics.getExecutions());
+        Assertions.assertEquals(0, metrics.getWallTime().getPercentile(0.99));
+    }
+
+    @Test
+    void testFailingListener() throws CLOCException {
+        CLOC.setExecutionListener(event -> {
+            throw new IllegalStateException();
+        });
+        Assertions.assertNotNull(CLOC.command().target(target).linesByLanguage());
+    }
+}
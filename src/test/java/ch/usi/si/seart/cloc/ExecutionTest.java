@@ -0,0 +1,111 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ExecutionTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    private static final FileCounter BLOCKING = files -> {
+        Cancellation cancellation = Cancellation.current();
+        while (!cancellation.isCancelled()) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                throw new CLOCException(ex);
+            }
+        }
+        throw new CLOCException("Execution was cancelled!");
+    };
+
+    @Test
+    void testComplete() throws CLOCException, InterruptedException {
+        AtomicInteger notifications = new AtomicInteger();
+        Execution execution = CLOC.command().target(RESOURCES).start(null, report -> notifications.incrementAndGet());
+        PartialReport partial = execution.await();
+        Assertions.assertTrue(partial.isComplete());
+        Assertions.assertTrue(partial.getExceptions().isEmpty());
+        Assertions.assertEquals(execution.getUnits(), execution.getCompletedUnits());
+        Assertions.assertEquals(execution.getUnits(), notifications.get());
+        ObjectNode expected = CLOC.command().target(RESOURCES).linesByFile();
+        ObjectNode actual = partial.getReport().linesByFile();
+        expected.remove("header");
+        actual.remove("header");
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void testDeadline() throws InterruptedException {
+        Path first = RESOURCES.resolve("Main.java");
+        Path second = RESOURCES.resolve("Main.py");
+        List<List<Path>> units = Arrays.asList(Collections.singletonList(first), Collections.singletonList(second));
+        Execution execution = new Execution(units, null);
+        execution.start(files -> {
+            if (files.contains(first)) {
+                FileCounts counts = new FileCounts();
+                counts.add(ListFiles.normalize(first), Languages.id("Java"), 1, 2, 3);
+                return counts;
+            }
+            return BLOCKING.count(files);
+        }, 2, TimeUnit.MILLISECONDS.toNanos(500));
+        PartialReport partial = execution.await(10, TimeUnit.SECONDS);
+        Assertions.assertTrue(execution.isDone());
+        Assertions.assertTrue(execution.isCancelled());
+        Assertions.assertFalse(partial.isComplete());
+        Assertions.assertEquals(Collections.singletonList(second), partial.getUnprocessed());
+        Assertions.assertTrue(partial.getExceptions().isEmpty());
+        Assertions.assertEquals(1, partial.getReport().getFileCounts().size());
+    }
+
+    @Test
+    void testCancel() throws InterruptedException {
+        List<List<Path>> units = Collections.singletonList(Collections.singletonList(RESOURCES.resolve("Main.java")));
+        Execution execution = new Execution(units, null);
+        execution.start(BLOCKING, 1, 0);
+        Assertions.assertFalse(execution.isDone());
+        execution.cancel();
+        PartialReport partial = execution.await(10, TimeUnit.SECONDS);
+        Assertions.assertTrue(execution.isDone());
+        Assertions.assertEquals(units.get(0), partial.getUnprocessed());
+    }
+
+    @Test
+    void testFailure() throws InterruptedException {
+        List<List<Path>> units = Collections.singletonList(Collections.singletonList(RESOURCES.resolve("Main.java")));
+        Execution execution = new Execution(units, null);
+        execution.start(files -> {
+            throw new CLOCException("Failure!");
+        }, 1, 0);
+        PartialReport partial = execution.await();
+        Assertions.assertFalse(partial.isComplete());
+        Assertions.assertEquals(1, partial.getExceptions().size());
+    }
+
+    @Test
+    void testCancelledRegistration() {
+        Cancellation cancellation = new Cancellation();
+        cancellation.cancel();
+        AtomicInteger runs = new AtomicInteger();
+        cancellation.register(runs::incrementAndGet);
+        Assertions.assertEquals(1, runs.get());
+        List<Path> files = Collections.singletonList(RESOURCES.resolve("Main.java"));
+        Assertions.assertThrows(CLOCException.class, () -> cancellation.count(ignored -> new FileCounts(), files));
+    }
+
+    @Test
+    void testInvalidDeadline() {
+        CLOC cloc = CLOC.command().target(RESOURCES);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cloc.start(Duration.ofSeconds(-1)));
+    }
+}
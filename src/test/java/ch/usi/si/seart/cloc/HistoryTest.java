@@ -0,0 +1,133 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+class HistoryTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path repository;
+
+    @TempDir
+    Path directory;
+
+    private final List<LanguageCounts> expected = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws CLOCException, IOException, InterruptedException {
+        git("init", "--quiet");
+        Files.copy(RESOURCES.resolve("Main.java"), repository.resolve("Main.java"));
+        commit();
+        Files.createDirectory(repository.resolve("copy"));
+        Files.copy(RESOURCES.resolve("Main.java"), repository.resolve("copy").resolve("Main.java"));
+        Files.copy(RESOURCES.resolve("Main.py"), repository.resolve("Main.py"));
+        commit();
+        Files.delete(repository.resolve("Main.java"));
+        commit();
+    }
+
+    @Test
+    void testCountLinesByLanguage() throws CLOCException {
+        Map<String, LanguageCounts> actual = CLOC.command().history(repository).countLinesByLanguage("HEAD");
+        Assertions.assertEquals(expected, new ArrayList<>(actual.values()));
+    }
+
+    @Test
+    void testLinesByLanguage() throws CLOCException {
+        Map<String, ObjectNode> actual = CLOC.command().batchSize(1).history(repository).linesByLanguage("HEAD");
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (ObjectNode result : actual.values()) {
+            Assertions.assertTrue(result.has("header"));
+            Assertions.assertTrue(result.has("SUM"));
+        }
+    }
+
+    @Test
+    void testRange() throws CLOCException {
+        Map<String, LanguageCounts> actual = CLOC.command().history(repository).countLinesByLanguage("HEAD~1..HEAD");
+        Assertions.assertEquals(1, actual.size());
+        Assertions.assertEquals(expected.get(2), actual.values().iterator().next());
+    }
+
+    @Test
+    void testCache() throws CLOCException {
+        ResultCache cache = ResultCache.open(directory, 100);
+        CLOC.Builder builder = CLOC.command().cache(cache);
+        for (int i = 0; i < 2; i++) {
+            Map<String, LanguageCounts> actual = builder.history(repository).countLinesByLanguage("HEAD");
+            Assertions.assertEquals(expected, new ArrayList<>(actual.values()));
+        }
+    }
+
+    @Test
+    void testFilter() throws CLOCException {
+        CLOC.Builder builder = CLOC.command().excludeDirs("copy").excludeExtensions("py");
+        Map<String, LanguageCounts> actual = builder.history(repository).countLinesByLanguage("HEAD");
+        List<LanguageCounts> counts = new ArrayList<>(actual.values());
+        Assertions.assertEquals(expected.get(0), counts.get(0));
+        Assertions.assertEquals(expected.get(0), counts.get(1));
+        Assertions.assertEquals(0, counts.get(2).getFiles());
+        CLOC.Builder gitignore = CLOC.command().respectGitignore(true);
+        Assertions.assertThrows(IllegalStateException.class, () -> gitignore.history(repository));
+    }
+
+    @Test
+    void testDuplicates() throws CLOCException, IOException, InterruptedException {
+        Files.write(repository.resolve("a.c"), "int a;\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(repository.resolve("b.h"), "int a;\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(repository.resolve("a"), "x = 1\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(repository.resolve("b.py"), "x = 1\n".getBytes(StandardCharsets.UTF_8));
+        commit();
+        Map<String, LanguageCounts> actual = CLOC.command().history(repository).countLinesByLanguage("HEAD");
+        Assertions.assertEquals(expected, new ArrayList<>(actual.values()));
+        LanguageCounts last = expected.get(expected.size() - 1);
+        Assertions.assertEquals(0, last.getFiles("C"));
+        Assertions.assertEquals(1, last.getFiles("C/C++ Header"));
+        Assertions.assertEquals(2, last.getFiles("Python"));
+        CLOC.Builder builder = CLOC.command().javaUniqueness(true);
+        Assertions.assertEquals(last, builder.target(repository).countLinesByLanguage());
+    }
+
+    @Test
+    void testInvalid() {
+        History history = CLOC.command().history(repository);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> history.countLinesByLanguage("--all"));
+        Assertions.assertThrows(CLOCException.class, () -> history.countLinesByLanguage("missing"));
+        Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> CLOC.command().history(RESOURCES.resolve("Main.java"))
+        );
+    }
+
+    private void commit() throws CLOCException, IOException, InterruptedException {
+        git("add", "--all");
+        git("-c", "user.name=test", "-c", "user.email=test@example.com", "commit", "--quiet", "-m", "commit");
+        expected.add(CLOC.command().target(repository).countLinesByLanguage());
+    }
+
+    private void git(String... arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        Collections.addAll(command, arguments);
+        Process process = new ProcessBuilder(command)
+                .directory(repository.toFile())
+                .redirectErrorStream(true)
+                .start();
+        Assertions.assertEquals(0, process.waitFor());
+    }
+}
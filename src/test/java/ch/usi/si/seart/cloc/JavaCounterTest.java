@@ -0,0 +1,165 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class JavaCounterTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    private static final String[] EXTENSIONS = {"c", "h", "cpp", "cs", "go", "java", "js", "kt", "scala", "ts", "py"};
+
+    private static final String[] C_LINES = {
+            "int x = 1;", "", "   ", "// comment", "x(); // trailing", "/* block */", "/*", " * inner", " */",
+            "a(); /* open", "close */ b();", "String s = \"/*\";", "s = \"*/\";", "u = \"http://x\";",
+            "/* a */ b(); /* c */", "t = `//`;", "d = \"\"\"", "x = 1; // a /* b", "*/", "/**/", "//",
+            "a = b / c * d;", "e = a/ *b;", "f(\"a\", 'b');", "/* \"quoted\" */", "#include <x>", "\t/* tab */",
+            "Do not edit!", "x := a at: [1].", "y(); // wow!", "a[0]. ", "!"
+    };
+
+    private static final String[] PYTHON_LINES = {
+            "x = 1", "", "  ", "# comment", "\"\"\"doc\"\"\"", "\"\"\"", "'''", "u\"\"\"u\"\"\"", "r'''raw'''",
+            "s = \"\"\"a", "b\"\"\"", "y = 2  # trailing", "/* c */", "z = '/*'", "    '''one'''", "U'''",
+            "\"\"\"doc\"\"\"  # comment", "x = \"#\"", "b'''x''' + '''y'''", "w = 3 */ 4", "q = \"\"\"\"\"\"",
+            "#!/not/first"
+    };
+
+    @TempDir
+    static Path target;
+
+    @TempDir
+    Path corpus;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        write("Comments.java",
+                "class Comments {",
+                "    // line comment",
+                "",
+                "    int x; /* spanning",
+                "    lines */ int y;",
+                "    /*",
+                "     * block comment",
+                "     */",
+                "    String s = \"/*\";",
+                "}");
+        write("Mixed.java", "int x; // see /* here", "int y; */");
+        write("Strings.java", "String a = \"/*\";", "int b;", "c(); /* c */");
+        write("TextBlock.java", "String s = \"\"\"", "    // not a comment", "    \"\"\";");
+        write("strings.js", "const url = \"http://example.com\";", "/* a */ const b = 1; /* c */", "   ");
+        write("unterminated.go", "package main", "/* open", "func main() {}");
+        write("macro.c", "#define X \\", "    1", "int main() { return X; }");
+        write("header.h", "/** doc */", "int f(void);");
+        write("source.cpp", "#include <cstdio>", "int main() {", "\t// comment", "}");
+        write("Program.cs", "class Program {", "  /* x */ static void Main() {}", "}");
+        write("Generated.cs",
+                "/*",
+                " * Generated file!",
+                " * Do not edit!",
+                " */",
+                "class A",
+                "{",
+                "    int x = 1;",
+                "}");
+        write("Main.kt", "fun main() {", "    // comment", "}");
+        write("Main.scala", "object Main {", "  /* comment */", "}");
+        write("index.ts", "export const x: number = 1; // trailing", "");
+        write("module.py",
+                "#!/usr/bin/env python",
+                "\"\"\"Module",
+                "",
+                "docstring.",
+                "\"\"\"",
+                "import os  # comment",
+                "",
+                "def f():",
+                "    '''one liner'''",
+                "    return 1",
+                "",
+                "x = \"\"\"a",
+                "b\"\"\"",
+                "y = u\"\"\"prefixed\"\"\"",
+                "# /* not a block */");
+        write("docstring.py", "x = 1", "\"\"\"doc\"\"\"  # comment");
+        Files.write(target.resolve("windows.java"), "a();\r\n\r\n// c\r\nb();".getBytes(StandardCharsets.UTF_8));
+        Files.write(target.resolve("binary.c"), new byte[]{'i', 'n', 't', 0, '\n'});
+    }
+
+    private static void write(String name, String... lines) throws IOException {
+        Files.write(target.resolve(name), String.join("\n", lines).concat("\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testSameResults(boolean docstringAsCode) throws CLOCException {
+        CLOC expected = CLOC.command().docstringAsCode(docstringAsCode).target(target);
+        CLOC actual = CLOC.command().docstringAsCode(docstringAsCode).javaEngine(true).target(target);
+        Assertions.assertEquals(strip(expected.linesByFile()), strip(actual.linesByFile()));
+        Assertions.assertEquals(strip(expected.linesByLanguage()), strip(actual.linesByLanguage()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testCorpus(boolean docstringAsCode) throws CLOCException, IOException {
+        Random random = new Random(42);
+        List<Path> files = new ArrayList<>();
+        for (String extension : EXTENSIONS) {
+            String[] lines = extension.equals("py") ? PYTHON_LINES : C_LINES;
+            for (int i = 0; i < 40; i++) {
+                StringBuilder builder = new StringBuilder();
+                if (random.nextInt(4) == 0) {
+                    builder.append(random.nextBoolean() ? "" : "\n").append("#!/usr/bin/env x\n");
+                }
+                for (int j = random.nextInt(12); j >= 0; j--) {
+                    builder.append(lines[random.nextInt(lines.length)]).append('\n');
+                }
+                Path file = corpus.resolve("file" + i + "." + extension).toAbsolutePath();
+                files.add(Files.write(file, builder.toString().getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        ObjectNode expected = CLOC.command()
+                .docstringAsCode(docstringAsCode)
+                .skipUniqueness(true)
+                .target(corpus)
+                .linesByFile();
+        JavaCounter counter = new JavaCounter(delegated -> new FileCounts(), docstringAsCode, Long.MAX_VALUE);
+        FileCounts counts = counter.count(files);
+        Assertions.assertTrue(counts.size() > files.size() / 4, counts.size() + " <= " + files.size() / 4);
+        for (FileCount count : counts) {
+            JsonNode entry = expected.get(count.getPath());
+            Assertions.assertNotNull(entry, count.getPath());
+            Assertions.assertEquals(entry.get("language").textValue(), count.getLanguage(), count.getPath());
+            Assertions.assertEquals(entry.get("blank").intValue(), count.getBlank(), count.getPath());
+            Assertions.assertEquals(entry.get("comment").intValue(), count.getComment(), count.getPath());
+            Assertions.assertEquals(entry.get("code").intValue(), count.getCode(), count.getPath());
+        }
+    }
+
+    @Test
+    void testResources() throws CLOCException {
+        CLOC expected = CLOC.command().target(RESOURCES);
+        CLOC actual = CLOC.command().javaEngine(true).target(RESOURCES);
+        Assertions.assertEquals(strip(expected.linesByFile()), strip(actual.linesByFile()));
+        Assertions.assertEquals(expected.countLinesByLanguage(), actual.countLinesByLanguage());
+    }
+
+    private static ObjectNode strip(ObjectNode node) {
+        node.remove("header");
+        return node;
+    }
+}
@@ -0,0 +1,170 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+class ReportFileTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path target;
+
+    @Test
+    void testRoundTrip() throws CLOCException {
+        CLOC cloc = CLOC.command().target(RESOURCES);
+        ObjectNode output = cloc.linesByFile();
+        Path file = target.resolve("report.bin");
+        ReportFile.write(file, output);
+        ReportFile report = ReportFile.open(file);
+        Assertions.assertEquals(output, report.linesByFile());
+        Assertions.assertEquals(cloc.report().getLanguageCounts(), report.getLanguageCounts());
+        Assertions.assertEquals(output.size() - 2, report.size());
+        Assertions.assertEquals(report.size(), report.getFileCounts().size());
+    }
+
+    @Test
+    void testLookup() {
+        ObjectNode output = output(1000);
+        Path file = target.resolve("report.bin");
+        ReportFile.write(file, output);
+        ReportFile report = ReportFile.open(file);
+        Assertions.assertEquals(1000, report.size());
+        for (int i = 0; i < 1000; i += 37) {
+            String path = path(i);
+            FileCount count = report.get(path);
+            Assertions.assertNotNull(count);
+            Assertions.assertEquals(path, count.getPath());
+            Assertions.assertEquals(output.get(path).get("code").intValue(), count.getCode());
+            Assertions.assertEquals(output.get(path).get("language").textValue(), count.getLanguage());
+        }
+        Assertions.assertNull(report.get("src/missing/Main.java"));
+        Assertions.assertEquals(DirectoryTree.of(output).getCounts(""), report.getLanguageCounts());
+    }
+
+    @Test
+    void testOrder() {
+        ObjectNode output = output(200);
+        Path file = target.resolve("report.bin");
+        ReportFile.write(file, output);
+        ObjectNode actual = ReportFile.open(file).linesByFile();
+        Assertions.assertEquals(output, actual);
+        Assertions.assertEquals(
+                String.join(",", (Iterable<String>) output::fieldNames),
+                String.join(",", (Iterable<String>) actual::fieldNames)
+        );
+        FileCounts counts = ReportFile.open(file).getFileCounts();
+        Assertions.assertEquals(path(0), counts.get(0).getPath());
+    }
+
+    @Test
+    void testSize() throws IOException {
+        ObjectNode output = output(10000);
+        Path file = target.resolve("report.bin");
+        ReportFile.write(file, output);
+        long json = new JsonMapper().writeValueAsString(output).getBytes(StandardCharsets.UTF_8).length;
+        Assertions.assertTrue(Files.size(file) * 3 < json, Files.size(file) + " >= " + json + " / 3");
+    }
+
+    @Test
+    void testEmpty() throws CLOCException {
+        ObjectNode output = CLOC.command().target(target).linesByFile();
+        Path file = target.resolve("report.bin");
+        ReportFile.write(file, output);
+        ReportFile report = ReportFile.open(file);
+        Assertions.assertEquals(output, report.linesByFile());
+        Assertions.assertEquals(0, report.size());
+        Assertions.assertEquals(0, report.getLanguageCounts().getFiles());
+        Assertions.assertNull(report.get("Main.java"));
+    }
+
+    @Test
+    void testInvalid() throws IOException {
+        Path file = Files.write(target.resolve("report.bin"), "{}".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertThrows(UncheckedIOException.class, () -> ReportFile.open(file));
+        Assertions.assertThrows(UncheckedIOException.class, () -> ReportFile.open(target.resolve("missing.bin")));
+        ObjectNode output = JsonNodeFactory.instance.objectNode();
+        output.putObject("Main.java").put("code", 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ReportFile.write(file, output));
+    }
+
+    @Test
+    void testTruncated() throws IOException {
+        Path file = target.resolve("report.bin");
+        ReportFile.write(file, output(100));
+        byte[] bytes = Files.readAllBytes(file);
+        for (int length = 0; length < bytes.length; length++) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            Assertions.assertThrows(UncheckedIOException.class, () -> ReportFile.open(file));
+        }
+    }
+
+    @Test
+    void testCorrupt() throws IOException {
+        Path file = target.resolve("report.bin");
+        ReportFile.write(file, output(100));
+        byte[] bytes = Files.readAllBytes(file);
+        int[][] corruptions = {
+                {Integer.BYTES * 2, 101},
+                {Integer.BYTES * 2, -1},
+                {Integer.BYTES * 8, bytes.length + 1},
+                {Integer.BYTES * 9, Integer.MAX_VALUE},
+                {Integer.BYTES * 4, 0},
+        };
+        for (int[] corruption : corruptions) {
+            byte[] corrupt = bytes.clone();
+            ByteBuffer.wrap(corrupt).putInt(corruption[0], corruption[1]);
+            Files.write(file, corrupt);
+            Assertions.assertThrows(UncheckedIOException.class, () -> ReportFile.open(file));
+        }
+    }
+
+    /*
+     * Entries are ordered by path, rather than by code lines, as the command would order them.
+     */
+    private static ObjectNode output(int files) {
+        ObjectNode output = JsonNodeFactory.instance.objectNode();
+        ObjectNode header = output.putObject("header");
+        header.put("cloc_url", "github.com/AlDanial/cloc");
+        header.put("cloc_version", "2.00");
+        header.put("elapsed_seconds", 0.25);
+        header.put("n_files", files);
+        String[] languages = {"Java", "Python", "C++", "Markdown"};
+        int blank = 0;
+        int comment = 0;
+        int code = 0;
+        for (int i = 0; i < files; i++) {
+            ObjectNode entry = output.putObject(path(i));
+            entry.put("blank", i % 13);
+            entry.put("comment", i % 7);
+            entry.put("code", i * 31 % 500);
+            entry.put("language", languages[i % languages.length]);
+            blank += i % 13;
+            comment += i % 7;
+            code += i * 31 % 500;
+        }
+        ObjectNode sum = output.putObject("SUM");
+        sum.put("blank", blank);
+        sum.put("comment", comment);
+        sum.put("code", code);
+        sum.put("nFiles", files);
+        return output;
+    }
+
+    private static String path(int index) {
+        return String.format("src/module%02d/package%d/File%04d.java", index % 20, index % 3, index);
+    }
+}
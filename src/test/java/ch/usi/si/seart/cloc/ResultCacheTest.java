@@ -0,0 +1,72 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+class ResultCacheTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path directory;
+
+    @TempDir
+    Path target;
+
+    @Test
+    void testSameResults() throws CLOCException {
+        ResultCache cache = ResultCache.open(directory, 100);
+        CLOC expected = CLOC.command().target(RESOURCES);
+        CLOC actual = CLOC.command().cache(cache).target(RESOURCES);
+        for (int i = 0; i < 2; i++) {
+            ObjectNode byFile = actual.linesByFile();
+            ObjectNode byLanguage = actual.linesByLanguage();
+            Assertions.assertEquals(strip(expected.linesByFile()), strip(byFile));
+            Assertions.assertEquals(strip(expected.linesByLanguage()), strip(byLanguage));
+        }
+        Assertions.assertEquals(3, cache.size());
+    }
+
+    @Test
+    void testChangedFile() throws CLOCException, IOException {
+        Path file = target.resolve("Main.java");
+        Files.copy(RESOURCES.resolve("Main.java"), file);
+        ResultCache cache = ResultCache.open(directory, 100);
+        CLOC command = CLOC.command().cache(cache).target(target);
+        long before = command.countLinesByLanguage().getCode();
+        Files.write(file, Collections.singletonList("class Extra {}"), StandardCharsets.UTF_8);
+        long after = command.countLinesByLanguage().getCode();
+        Assertions.assertNotEquals(before, after);
+        Assertions.assertEquals(CLOC.command().target(target).countLinesByLanguage().getCode(), after);
+    }
+
+    @Test
+    void testEviction() throws CLOCException {
+        ResultCache cache = ResultCache.open(directory, 1);
+        CLOC.command().cache(cache).target(RESOURCES).countLinesByFile();
+        Assertions.assertTrue(cache.size() <= 1);
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ResultCache.open(directory, 0));
+    }
+
+    private static JsonNode strip(ObjectNode node) {
+        ObjectNode copy = node.deepCopy();
+        copy.remove("header");
+        return copy;
+    }
+}
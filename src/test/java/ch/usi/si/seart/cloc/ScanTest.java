@@ -0,0 +1,62 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+class ScanTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path empty;
+
+    @Test
+    void testAsync() throws CLOCException, ExecutionException, InterruptedException {
+        CLOC command = CLOC.command().target(RESOURCES);
+        ObjectNode expected = command.linesByLanguage();
+        ObjectNode actual = command.linesByLanguageAsync().get();
+        Assertions.assertEquals(expected.get("SUM"), actual.get("SUM"));
+    }
+
+    @Test
+    void testAsyncCustomExecutor() throws ExecutionException, InterruptedException {
+        CLOC command = CLOC.command().executor(Executors.newSingleThreadExecutor()).target(RESOURCES);
+        LanguageCounts counts = command.async(CLOC::countLinesByLanguage).get();
+        Assertions.assertFalse(counts.getLanguages().isEmpty());
+    }
+
+    @Test
+    void testScan() throws CLOCException {
+        Path invalid = RESOURCES.resolve("nonexistant");
+        List<Path> targets = Arrays.asList(RESOURCES, empty, invalid);
+        Set<Path> seen = new HashSet<>();
+        try (Scan<LanguageCounts> scan = CLOC.command().scan(targets, CLOC::countLinesByLanguage)) {
+            Assertions.assertEquals(3, scan.getRemaining());
+            while (scan.hasNext()) {
+                Scan.Result<LanguageCounts> result = scan.next();
+                seen.add(result.getTarget());
+                if (result.getTarget().equals(invalid)) {
+                    Assertions.assertFalse(result.isSuccessful());
+                    Assertions.assertThrows(IllegalArgumentException.class, result::get);
+                } else {
+                    Assertions.assertTrue(result.isSuccessful());
+                    Assertions.assertNotNull(result.get());
+                }
+            }
+            Assertions.assertThrows(NoSuchElementException.class, scan::next);
+        }
+        Assertions.assertEquals(new HashSet<>(targets), seen);
+    }
+}
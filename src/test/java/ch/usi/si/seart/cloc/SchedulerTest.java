@@ -0,0 +1,158 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+class SchedulerTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    private static final long MEGABYTE = 1L << 20;
+
+    @TempDir
+    Path target;
+
+    @Test
+    void testEstimate() throws IOException {
+        Files.write(Files.createDirectories(target.resolve("a/b")).resolve("Large.txt"), new byte[(int) MEGABYTE]);
+        Files.write(target.resolve("Small.txt"), new byte[16]);
+        List<Path> targets = Collections.singletonList(target);
+        long base = Scheduler.estimate(Collections.emptyList(), 100 * MEGABYTE, false);
+        Assertions.assertEquals(base + 20 * MEGABYTE, Scheduler.estimate(targets, 100 * MEGABYTE, false));
+        Assertions.assertEquals(base + 10 * MEGABYTE, Scheduler.estimate(targets, MEGABYTE / 2, false));
+        Assertions.assertEquals(
+                base + 20 * 16,
+                Scheduler.estimate(Collections.singletonList(target.resolve("Small.txt")), 100 * MEGABYTE, false)
+        );
+    }
+
+    @Test
+    void testOrdering() throws Exception {
+        Scheduler scheduler = Scheduler.builder().maxProcesses(2).maxMemory(100).build();
+        List<String> admitted = Collections.synchronizedList(new ArrayList<>());
+        long first = scheduler.acquire(60 * MEGABYTE);
+        CompletableFuture<Long> large = acquire(scheduler, 60, "large", admitted);
+        await(scheduler, 1);
+        CompletableFuture<Long> small = acquire(scheduler, 10, "small", admitted);
+        await(scheduler, 2);
+        Assertions.assertEquals(1, scheduler.getRunning());
+        Assertions.assertTrue(admitted.isEmpty());
+        scheduler.release(first);
+        long reserved = large.get(10, TimeUnit.SECONDS) + small.get(10, TimeUnit.SECONDS);
+        Assertions.assertTrue(admitted.containsAll(Arrays.asList("large", "small")));
+        Assertions.assertEquals(0, scheduler.getQueued());
+        Assertions.assertEquals(2, scheduler.getRunning());
+        Assertions.assertEquals(70 * MEGABYTE, scheduler.getReservedMemory());
+        CompletableFuture<Long> third = acquire(scheduler, 1, "third", admitted);
+        await(scheduler, 1);
+        scheduler.release(small.get());
+        scheduler.release(third.get(10, TimeUnit.SECONDS));
+        scheduler.release(large.get());
+        Assertions.assertEquals(0, scheduler.getRunning());
+        Assertions.assertEquals(0, scheduler.getReservedMemory());
+        Assertions.assertEquals(70 * MEGABYTE, reserved);
+    }
+
+    @Test
+    void testOversized() throws Exception {
+        Scheduler scheduler = Scheduler.builder().maxProcesses(4).maxMemory(100).build();
+        long small = scheduler.acquire(10 * MEGABYTE);
+        CompletableFuture<Long> large = acquire(scheduler, 500, "large", new ArrayList<>());
+        await(scheduler, 1);
+        Assertions.assertFalse(large.isDone());
+        scheduler.release(small);
+        long reserved = large.get(10, TimeUnit.SECONDS);
+        Assertions.assertEquals(100 * MEGABYTE, reserved);
+        scheduler.release(reserved);
+    }
+
+    @Test
+    void testInterrupt() throws Exception {
+        Scheduler scheduler = Scheduler.builder().maxProcesses(1).build();
+        long reserved = scheduler.acquire(MEGABYTE);
+        CompletableFuture<Long> waiting = new CompletableFuture<>();
+        Thread thread = start(() -> waiting.complete(scheduler.acquire(MEGABYTE)), waiting);
+        await(scheduler, 1);
+        thread.interrupt();
+        ExecutionException ex = Assertions.assertThrows(
+                ExecutionException.class, () -> waiting.get(10, TimeUnit.SECONDS)
+        );
+        Assertions.assertTrue(ex.getCause() instanceof CLOCException);
+        Assertions.assertEquals(0, scheduler.getQueued());
+        scheduler.release(reserved);
+    }
+
+    @Test
+    void testSameResults() throws CLOCException {
+        Scheduler scheduler = Scheduler.builder().maxProcesses(1).maxMemory(1).build();
+        CLOC expected = CLOC.command().target(RESOURCES);
+        CLOC actual = CLOC.command().scheduler(scheduler).target(RESOURCES);
+        ObjectNode byLanguage = actual.linesByLanguage();
+        ObjectNode reference = expected.linesByLanguage();
+        byLanguage.remove("header");
+        reference.remove("header");
+        Assertions.assertEquals(reference, byLanguage);
+        Assertions.assertEquals(0, scheduler.getRunning());
+        Assertions.assertEquals(0, scheduler.getReservedMemory());
+    }
+
+    @Test
+    void testInvalid() {
+        Scheduler.Builder builder = Scheduler.builder();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.maxProcesses(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.maxMemory(0));
+    }
+
+    private static CompletableFuture<Long> acquire(
+            Scheduler scheduler, long megabytes, String name, List<String> admitted
+    ) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        start(() -> {
+            long reserved = scheduler.acquire(megabytes * MEGABYTE);
+            admitted.add(name);
+            future.complete(reserved);
+        }, future);
+        return future;
+    }
+
+    private static Thread start(Action action, CompletableFuture<?> future) {
+        Thread thread = new Thread(() -> {
+            try {
+                action.run();
+            } catch (CLOCException ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void await(Scheduler scheduler, int queued) throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (scheduler.getQueued() != queued) {
+            if (System.nanoTime() > deadline) throw new TimeoutException();
+            Thread.sleep(10);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Action {
+
+        void run() throws CLOCException;
+    }
+}
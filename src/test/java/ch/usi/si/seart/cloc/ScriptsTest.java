@@ -0,0 +1,67 @@
+package ch.usi.si.seart.cloc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class ScriptsTest {
+
+    private static final Path SCRIPT = Paths.get("src", "main", "resources", "cloc-worker.pl");
+
+    @TempDir
+    Path directory;
+
+    private File extract() throws IOException, NoSuchAlgorithmException {
+        URL url = SCRIPT.toUri().toURL();
+        return Scripts.extract(directory, url, "cloc-worker.pl", "1.0", MD5.hash(SCRIPT.toFile()));
+    }
+
+    @Test
+    void testExtract() throws IOException, NoSuchAlgorithmException {
+        File script = extract();
+        Assertions.assertTrue(script.canExecute());
+        Assertions.assertEquals(directory, script.toPath().getParent().getParent());
+        Assertions.assertTrue(script.getParentFile().getName().startsWith("1.0-"));
+        Assertions.assertArrayEquals(Files.readAllBytes(SCRIPT), Files.readAllBytes(script.toPath()));
+        long modified = script.lastModified();
+        Assertions.assertEquals(script, extract());
+        Assertions.assertEquals(modified, script.lastModified());
+    }
+
+    @Test
+    void testModified() throws IOException, NoSuchAlgorithmException {
+        File script = extract();
+        Files.write(script.toPath(), "exit 1;".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertEquals(script, extract());
+        Assertions.assertArrayEquals(Files.readAllBytes(SCRIPT), Files.readAllBytes(script.toPath()));
+    }
+
+    @Test
+    void testConcurrentExtract() throws InterruptedException, ExecutionException, IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<File>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) futures.add(executor.submit(this::extract));
+            File expected = futures.get(0).get();
+            for (Future<File> future : futures) Assertions.assertEquals(expected, future.get());
+            Assertions.assertArrayEquals(Files.readAllBytes(SCRIPT), Files.readAllBytes(expected.toPath()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
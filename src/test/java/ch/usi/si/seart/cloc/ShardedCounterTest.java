@@ -0,0 +1,64 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class ShardedCounterTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path target;
+
+    @Test
+    void testSameResults() throws CLOCException {
+        CLOC expected = CLOC.command().target(RESOURCES);
+        CLOC actual = CLOC.command().shards(3).target(RESOURCES);
+        Assertions.assertEquals(strip(expected.linesByFile()), strip(actual.linesByFile()));
+        Assertions.assertEquals(strip(expected.linesByLanguage()), strip(actual.linesByLanguage()));
+        Assertions.assertEquals(expected.countLinesByLanguage(), actual.countLinesByLanguage());
+    }
+
+    @Test
+    void testSplit() throws IOException {
+        List<Path> files = new ArrayList<>();
+        int[] sizes = {800, 400, 300, 300, 100, 100};
+        for (int i = 0; i < sizes.length; i++) {
+            Path file = target.resolve("File" + i + ".txt");
+            byte[] bytes = new byte[sizes[i]];
+            Arrays.fill(bytes, (byte) 'x');
+            Files.write(file, bytes);
+            files.add(file);
+        }
+        List<List<Path>> shards = ShardedCounter.split(files, 2);
+        Assertions.assertEquals(2, shards.size());
+        for (List<Path> shard : shards) {
+            long total = 0;
+            for (Path file : shard) total += Files.size(file);
+            Assertions.assertEquals(1000, total);
+        }
+        Assertions.assertEquals(files.size(), ShardedCounter.split(files, 10).size());
+        Assertions.assertTrue(ShardedCounter.split(Collections.emptyList(), 2).isEmpty());
+    }
+
+    @Test
+    void testInvalidShards() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CLOC.command().shards(0));
+    }
+
+    private static ObjectNode strip(ObjectNode node) {
+        node.remove("header");
+        return node;
+    }
+}
@@ -0,0 +1,151 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+class SourceWalkerTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path target;
+
+    @Test
+    void testWalk() throws IOException {
+        create(
+                "Main.java", "lib/Lib.java", "node_modules/dep/index.js",
+                ".git/config", ".config/Tool.java", "lib/.config/Tool.java", "build/Main.class"
+        );
+        Assertions.assertEquals(
+                Arrays.asList("Main.java", "build/Main.class", "lib/Lib.java", "node_modules/dep/index.js"),
+                walk(SourceFilter.NONE)
+        );
+        Assertions.assertEquals(Collections.singletonList("Main.java"), walk(SourceFilter.NONE, true));
+    }
+
+    @Test
+    void testExcludedDirectories() throws IOException {
+        create("Main.java", "lib/Lib.java", "node_modules/dep/index.js", "lib/node_modules/index.js");
+        SourceFilter filter = filter(set("node_modules"), set(), set(), false);
+        Assertions.assertEquals(Arrays.asList("Main.java", "lib/Lib.java"), walk(filter));
+    }
+
+    @Test
+    void testExtensions() throws IOException {
+        create("Main.java", "Main.PY", "Makefile", "lib/Lib.cpp");
+        SourceFilter included = filter(set(), set("java", "py"), set(), false);
+        SourceFilter excluded = filter(set(), set(), set("java", "cpp"), false);
+        Assertions.assertEquals(Arrays.asList("Main.PY", "Main.java"), walk(included));
+        Assertions.assertEquals(Arrays.asList("Main.PY", "Makefile"), walk(excluded));
+    }
+
+    @Test
+    void testGitignore() throws IOException {
+        create(
+                "Main.java", "Debug.log", "Important.log", "out/Main.class", "src/out/Main.java",
+                "src/build", "src/build.java", "docs/index.md", "docs/api/index.md", "lib/a/b/Lib.java"
+        );
+        Files.createDirectories(target.resolve(".git").resolve("info"));
+        write(".git/info/exclude", "# Local exclusions", "lib/**/b/");
+        write(".gitignore", "*.log", "!Important.log", "/out/", "src/build", "docs/**");
+        write("docs/.gitignore", "!index.md");
+        SourceFilter filter = filter(set(), set(), set(), true);
+        Assertions.assertEquals(
+                Arrays.asList(
+                        ".gitignore", "Important.log", "Main.java",
+                        "docs/index.md", "src/build.java", "src/out/Main.java"
+                ),
+                walk(filter)
+        );
+        Assertions.assertEquals(2, SourceWalker.walk(target.resolve("src"), false, false, filter).size());
+    }
+
+    @Test
+    void testFilteredCommand() throws CLOCException {
+        LanguageCounts expected = CLOC.command().target(RESOURCES.resolve("Main.java")).countLinesByLanguage();
+        CLOC extensions = CLOC.command().includeExtensions("JAVA").target(RESOURCES);
+        CLOC languages = CLOC.command().excludeLanguages("C++", "Python").target(RESOURCES);
+        Assertions.assertEquals(expected, extensions.countLinesByLanguage());
+        Assertions.assertEquals(expected, languages.countLinesByLanguage());
+        LanguageCounts engine = CLOC.command()
+                .javaEngine(true)
+                .includeLanguages("java")
+                .target(RESOURCES)
+                .countLinesByLanguage();
+        Assertions.assertEquals(Collections.singleton("Java"), engine.getLanguages());
+    }
+
+    @Test
+    void testFilteredFileAndLanguage() throws CLOCException {
+        JsonNode expected = CLOC.command().target(RESOURCES.resolve("Main.java")).linesByFileAndLanguage();
+        JsonNode actual = CLOC.command().includeExtensions("java").target(RESOURCES).linesByFileAndLanguage();
+        Assertions.assertEquals(expected.get("by_lang"), actual.get("by_lang"));
+        Assertions.assertEquals(expected.get("by_file").get("SUM"), actual.get("by_file").get("SUM"));
+        Assertions.assertEquals(expected.get("by_file").size(), actual.get("by_file").size());
+    }
+
+    @Test
+    void testSameFilesAsCommand() throws CLOCException, IOException {
+        for (String directory : Arrays.asList("", "lib/", ".git/", ".config/", "lib/.config/", ".svn/", ".hg/")) {
+            Files.createDirectories(target.resolve(directory));
+            Files.copy(RESOURCES.resolve("Main.java"), target.resolve(directory + "Main.java"));
+        }
+        LanguageCounts expected = CLOC.command().skipUniqueness(true).target(target).countLinesByLanguage();
+        LanguageCounts actual = CLOC.command().skipUniqueness(true).shards(2).target(target).countLinesByLanguage();
+        Assertions.assertEquals(2, expected.getFiles());
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void testInvalidFilters() {
+        CLOC.Builder builder = CLOC.command();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.excludeDirs("a/b"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.includeExtensions(""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.excludeLanguages("C,C++"));
+        Assertions.assertThrows(NullPointerException.class, () -> builder.excludeDirs((String) null));
+    }
+
+    private void create(String... paths) throws IOException {
+        for (String path : paths) write(path, "class Main {}");
+    }
+
+    private void write(String path, String... lines) throws IOException {
+        Path file = target.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private List<String> walk(SourceFilter filter) {
+        return walk(filter, false);
+    }
+
+    private List<String> walk(SourceFilter filter, boolean noRecurse) {
+        Path root = target.toAbsolutePath().normalize();
+        return SourceWalker.walk(target, false, noRecurse, filter).stream()
+                .map(file -> root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/"))
+                .collect(Collectors.toList());
+    }
+
+    private static SourceFilter filter(
+            Set<String> directories, Set<String> included, Set<String> excluded, boolean gitignore
+    ) {
+        return new SourceFilter(directories, included, excluded, gitignore);
+    }
+
+    private static Set<String> set(String... values) {
+        return Arrays.stream(values).collect(Collectors.toSet());
+    }
+}
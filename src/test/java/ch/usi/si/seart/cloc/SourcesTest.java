@@ -0,0 +1,149 @@
+package ch.usi.si.seart.cloc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+class SourcesTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path target;
+
+    @Test
+    void testSnippets() throws CLOCException, IOException {
+        byte[] java = Files.readAllBytes(RESOURCES.resolve("Main.java"));
+        byte[] python = Files.readAllBytes(RESOURCES.resolve("Main.py"));
+        LanguageCounts expected = CLOC.command().target(RESOURCES.resolve("Main.java")).countLinesByLanguage();
+        Map<Integer, Report> results;
+        try (Sources<Integer> sources = CLOC.command().batchSize(2).sources(target)) {
+            sources.add(1, "Main.java", java);
+            sources.add(2, "src/Main.py", new ByteArrayInputStream(python));
+            sources.add(2, "Main.java", java);
+            sources.add(3, "README", "Nothing to count".getBytes(StandardCharsets.UTF_8));
+            results = sources.report();
+        }
+        Assertions.assertEquals(Arrays.asList(1, 2, 3), results.keySet().stream().collect(Collectors.toList()));
+        Assertions.assertEquals(expected, results.get(1).getLanguageCounts());
+        Assertions.assertEquals("Main.java", results.get(1).getFileCounts().get(0).getPath());
+        Assertions.assertEquals(2, results.get(2).getFileCounts().size());
+        FileCounts files = results.get(2).getFileCounts();
+        Assertions.assertTrue(files.stream().anyMatch(file -> file.getPath().equals("src/Main.py")));
+        Assertions.assertTrue(results.get(3).getFileCounts().isEmpty());
+        try (Stream<Path> staged = Files.list(target)) {
+            Assertions.assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void testArchives() throws CLOCException, IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("project/Main.java", Files.readAllBytes(RESOURCES.resolve("Main.java")));
+        entries.put("project/lib/Main.cpp", Files.readAllBytes(RESOURCES.resolve("Main.cpp")));
+        entries.put("../Escape.java", Files.readAllBytes(RESOURCES.resolve("Main.java")));
+        Path zip = target.resolve("archive.zip");
+        Files.write(zip, zip(entries));
+        Path project = Files.createDirectory(target.resolve("project"));
+        Files.copy(RESOURCES.resolve("Main.java"), project.resolve("Main.java"));
+        Files.copy(RESOURCES.resolve("Main.cpp"), project.resolve("Main.cpp"));
+        LanguageCounts expected = CLOC.command().target(project).countLinesByLanguage();
+        try (Sources<String> sources = CLOC.command().sources()) {
+            sources.addArchive("zip", zip);
+            sources.addArchive("tar", new ByteArrayInputStream(tar(entries)));
+            sources.addArchive("tar.gz", new ByteArrayInputStream(gzip(tar(entries))));
+            Map<String, Report> results = sources.report();
+            for (Report report : results.values()) {
+                Assertions.assertEquals(expected, report.getLanguageCounts());
+                Assertions.assertEquals("project/Main.java", report.getFileCounts().get(0).getPath());
+            }
+            InputStream invalid = new ByteArrayInputStream(new byte[1024]);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> sources.addArchive("invalid", invalid));
+        }
+        Assertions.assertFalse(Files.exists(target.getParent().resolve("Escape.java")));
+    }
+
+    @Test
+    void testInvalid() {
+        Path missing = target.resolve("Missing");
+        Sources<String> sources = CLOC.command().sources();
+        byte[] contents = new byte[0];
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sources.add("id", "../Main.java", contents));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sources.add("id", "/Main.java", contents));
+        sources.add("id", "Main.java", contents);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> sources.add("id", "Main.java", contents));
+        Assertions.assertThrows(NullPointerException.class, () -> sources.add(null, "Main.java", contents));
+        Assertions.assertThrows(UncheckedIOException.class, () -> sources.addArchive("id", missing));
+        sources.close();
+        Assertions.assertThrows(IllegalStateException.class, sources::report);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CLOC.command().sources(missing));
+    }
+
+    private static byte[] zip(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue());
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] tar(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            byte[] contents = entry.getValue();
+            byte[] header = new byte[512];
+            put(header, 0, entry.getKey());
+            put(header, 100, "0000644");
+            put(header, 124, String.format("%011o", contents.length));
+            put(header, 136, String.format("%011o", 0));
+            header[156] = '0';
+            put(header, 257, "ustar");
+            put(header, 263, "00");
+            Arrays.fill(header, 148, 156, (byte) ' ');
+            int checksum = 0;
+            for (byte b : header) checksum += b & 0xFF;
+            put(header, 148, String.format("%06o", checksum));
+            bytes.write(header);
+            bytes.write(contents);
+            bytes.write(new byte[(512 - contents.length % 512) % 512]);
+        }
+        bytes.write(new byte[1024]);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] contents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(contents);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
@@ -0,0 +1,92 @@
+package ch.usi.si.seart.cloc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ThreadsTest {
+
+    @Test
+    void testBounded() throws InterruptedException {
+        ThreadFactory delegate = Threads.newThreadFactory("cloc-test");
+        AtomicInteger created = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            created.incrementAndGet();
+            return delegate.newThread(runnable);
+        };
+        Executor executor = Threads.newBoundedExecutor(2, factory);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(20);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int index = i;
+            executor.execute(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                order.add(index);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        Thread.sleep(100);
+        Assertions.assertEquals(2, created.get());
+        release.countDown();
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, peak.get());
+        Assertions.assertEquals(20, new HashSet<>(order).size());
+    }
+
+    @Test
+    void testFailedThread() throws InterruptedException {
+        ThreadFactory delegate = Threads.newThreadFactory("cloc-test");
+        AtomicBoolean failing = new AtomicBoolean();
+        ThreadFactory factory = runnable -> {
+            if (failing.get()) throw new IllegalStateException("Thread limit reached");
+            return delegate.newThread(runnable);
+        };
+        Executor executor = Threads.newBoundedExecutor(2, factory);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> {
+                await(release);
+                done.countDown();
+            });
+        }
+        failing.set(true);
+        release.countDown();
+        Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+        failing.set(false);
+        CountDownLatch together = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                together.countDown();
+                await(together);
+            });
+        }
+        Assertions.assertTrue(together.await(10, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ch.usi.si.seart.cloc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class WatchTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path target;
+
+    @Test
+    void testUpdates() throws Exception {
+        Files.copy(RESOURCES.resolve("Main.java"), target.resolve("Main.java"));
+        List<Report> reports = new CopyOnWriteArrayList<>();
+        try (Watch watch = CLOC.command().watch(target, reports::add)) {
+            LanguageCounts initial = watch.countLinesByLanguage();
+            Assertions.assertEquals(1, initial.getFiles());
+            Assertions.assertEquals(Collections.singleton("Java"), initial.getLanguages());
+
+            Path directory = Files.createDirectories(target.resolve("a/b"));
+            Files.copy(RESOURCES.resolve("Main.py"), directory.resolve("Main.py"));
+            await(watch, () -> watch.countLinesByLanguage().getFiles() == 2);
+            Assertions.assertEquals(1, watch.countLinesByLanguage().getFiles("Python"));
+
+            Files.copy(RESOURCES.resolve("Main.cpp"), directory.resolve("Main.cpp"));
+            await(watch, () -> watch.countLinesByLanguage().getFiles() == 3);
+            Assertions.assertEquals(expected(), watch.countLinesByLanguage());
+            Assertions.assertEquals(expected(), watch.snapshot().getLanguageCounts());
+
+            long comment = watch.countLinesByLanguage().getComment("Java");
+            Files.write(target.resolve("Main.java"), "// edited\n".getBytes(), StandardOpenOption.APPEND);
+            await(watch, () -> watch.countLinesByLanguage().getComment("Java") == comment + 1);
+            Assertions.assertEquals(expected(), watch.countLinesByLanguage());
+
+            delete(target.resolve("a"));
+            await(watch, () -> watch.countLinesByLanguage().getFiles() == 1);
+            Assertions.assertEquals(expected(), watch.countLinesByLanguage());
+            Assertions.assertFalse(reports.isEmpty());
+            Assertions.assertEquals(watch.snapshot(), reports.get(reports.size() - 1));
+        }
+    }
+
+    @Test
+    void testFilter() throws Exception {
+        Files.copy(RESOURCES.resolve("Main.java"), target.resolve("Main.java"));
+        Files.createDirectories(target.resolve("build"));
+        try (Watch watch = CLOC.command().excludeDirs("build").watch(target)) {
+            Files.copy(RESOURCES.resolve("Main.py"), target.resolve("build/Main.py"));
+            Files.copy(RESOURCES.resolve("Main.cpp"), target.resolve("Main.cpp"));
+            await(watch, () -> watch.countLinesByLanguage().getFiles() == 2);
+            Assertions.assertEquals(0, watch.countLinesByLanguage().getFiles("Python"));
+            Assertions.assertEquals(1, watch.countLinesByLanguage().getFiles("C++"));
+        }
+    }
+
+    @Test
+    void testContinuousChanges() throws Exception {
+        Path file = Files.copy(RESOURCES.resolve("Main.java"), target.resolve("Main.java"));
+        try (Watch watch = CLOC.command().watch(target)) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (watch.getUpdates() == 0 && System.nanoTime() < deadline) {
+                Files.write(file, "// edited\n".getBytes(), StandardOpenOption.APPEND);
+                Thread.sleep(20);
+            }
+            Assertions.assertTrue(watch.getUpdates() > 0);
+        }
+    }
+
+    @Test
+    void testInvalid() {
+        CLOC.Builder builder = CLOC.command();
+        Assertions.assertThrows(NullPointerException.class, () -> builder.watch(null));
+        Path file = RESOURCES.resolve("Main.java");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.watch(file));
+    }
+
+    private LanguageCounts expected() throws CLOCException {
+        return CLOC.command().target(target).report().getLanguageCounts();
+    }
+
+    private static void await(Watch watch, Condition condition) throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.isMet()) {
+            if (System.nanoTime() > deadline) throw new TimeoutException(watch.countLinesByLanguage().toString());
+            Thread.sleep(50);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            List<Path> sorted = paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (Path path : sorted) Files.delete(path);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Condition {
+
+        boolean isMet();
+    }
+}
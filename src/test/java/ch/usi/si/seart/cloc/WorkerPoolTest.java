@@ -0,0 +1,98 @@
+package ch.usi.si.seart.cloc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@DisabledOnOs(OS.WINDOWS)
+class WorkerPoolTest {
+
+    private static final Path RESOURCES = Paths.get("src", "test", "resources");
+
+    @TempDir
+    Path empty;
+
+    WorkerPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = WorkerPool.builder().maxWorkers(2).maxJobs(2).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void testSameResults() throws CLOCException {
+        CLOC expected = CLOC.command().target(RESOURCES);
+        CLOC actual = CLOC.command().workers(pool).target(RESOURCES);
+        for (int i = 0; i < 3; i++) {
+            JsonNode byLanguage = actual.linesByLanguage();
+            Assertions.assertEquals(expected.linesByLanguage().get("SUM"), byLanguage.get("SUM"));
+            Assertions.assertEquals(expected.countLinesByFile().size(), actual.countLinesByFile().size());
+            Assertions.assertTrue(pool.getSize() <= 2);
+        }
+    }
+
+    @Test
+    void testEmptyDirectory() throws CLOCException {
+        JsonNode result = CLOC.command().workers(pool).target(empty).linesByLanguage();
+        Assertions.assertNotNull(result);
+        Assertions.assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void testNonAsciiPath() throws Exception {
+        Assumptions.assumeTrue(ListFiles.CHARSET.newEncoder().canEncode("\u00fcber"));
+        Path directory = Files.createDirectories(empty.resolve("\u00fcber"));
+        Files.copy(RESOURCES.resolve("Main.java"), directory.resolve("M\u00e4in.java"));
+        JsonNode expected = CLOC.command().target(RESOURCES.resolve("Main.java")).linesByFile().get("SUM");
+        JsonNode actual = CLOC.command().workers(pool).target(directory).linesByFile().get("SUM");
+        Assertions.assertEquals(1, actual.get("nFiles").intValue());
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void testMinWorkers() {
+        try (WorkerPool warm = WorkerPool.builder().maxWorkers(2).minWorkers(2).build()) {
+            Assertions.assertEquals(2, warm.getSize());
+            Assertions.assertEquals(2, warm.getIdle());
+        }
+    }
+
+    @Test
+    void testTimeout() {
+        Path user = Paths.get(System.getProperty("user.home"));
+        CLOC command = CLOC.command().workers(pool).timeout(1).target(user);
+        Assertions.assertThrows(CLOCException.class, command::linesByLanguage);
+        Assertions.assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    void testClosed() {
+        pool.close();
+        CLOC command = CLOC.command().workers(pool).target(RESOURCES);
+        Executable executable = command::linesByLanguage;
+        Assertions.assertThrows(IllegalStateException.class, executable);
+    }
+
+    @Test
+    void testInvalidConfiguration() {
+        WorkerPool.Builder builder = WorkerPool.builder().maxWorkers(1).minWorkers(2);
+        Assertions.assertThrows(IllegalArgumentException.class, builder::build);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> WorkerPool.builder().maxJobs(0));
+    }
+}